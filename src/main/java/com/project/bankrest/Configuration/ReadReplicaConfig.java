@@ -0,0 +1,103 @@
+package com.project.bankrest.Configuration;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.liquibase.LiquibaseDataSource;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read replicas, only when bankrest.datasource.replicas.urls lists at least one JDBC
+ * URL. spring.datasource stays the primary and is the one Liquibase migrates; the
+ * DataSource everything else sees routes @Transactional(readOnly = true) work to the
+ * replicas (see ReplicaRoutingDataSource). Replica pools reuse the primary's
+ * credentials unless their own are set.
+ */
+@Configuration
+@ConditionalOnProperty(name = "bankrest.datasource.replicas.urls")
+public class ReadReplicaConfig {
+
+    private ReplicaRoutingDataSource routingDataSource;
+
+    @Bean
+    @LiquibaseDataSource
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(
+            HikariDataSource primaryDataSource,
+            DataSourceProperties properties,
+            MeterRegistry meterRegistry,
+            @Value("${bankrest.datasource.replicas.urls}") String[] urls,
+            @Value("${bankrest.datasource.replicas.username:}") String username,
+            @Value("${bankrest.datasource.replicas.password:}") String password,
+            @Value("${bankrest.datasource.replicas.maximum-pool-size:10}") int maximumPoolSize,
+            @Value("${bankrest.datasource.replicas.sticky-window:PT5S}") Duration stickyWindow,
+            @Value("${bankrest.datasource.replicas.max-lag:PT10S}") Duration maxLag) {
+        List<DataSource> replicas = new ArrayList<>();
+        for (int i = 0; i < urls.length; i++) {
+            HikariDataSource replica = new HikariDataSource();
+            replica.setPoolName("replica-" + (i + 1));
+            replica.setJdbcUrl(urls[i].trim());
+            replica.setUsername(username.isEmpty() ? properties.determineUsername() : username);
+            replica.setPassword(password.isEmpty() ? properties.determinePassword() : password);
+            replica.setMaximumPoolSize(maximumPoolSize);
+            replica.setReadOnly(true);
+            // a replica that is down at startup must not keep the application from starting
+            replica.setInitializationFailTimeout(-1);
+            replica.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+            replicas.add(replica);
+        }
+
+        routingDataSource = new ReplicaRoutingDataSource(
+                primaryDataSource, replicas, ReadReplicaConfig::currentUsername, stickyWindow, maxLag);
+        Gauge.builder("bankrest.datasource.replicas.healthy", routingDataSource,
+                        ReplicaRoutingDataSource::getHealthyReplicaCount)
+                .register(meterRegistry);
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+
+    @Scheduled(fixedDelayString = "${bankrest.datasource.replicas.health-interval:PT5S}")
+    public void checkReplicas() {
+        if (routingDataSource != null) {
+            routingDataSource.checkReplicas();
+        }
+    }
+
+    @PreDestroy
+    public void closeReplicas() throws Exception {
+        if (routingDataSource != null) {
+            routingDataSource.close();
+        }
+    }
+
+    private static String currentUsername() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || authentication instanceof AnonymousAuthenticationToken) {
+            return null;
+        }
+        return authentication.getName();
+    }
+}
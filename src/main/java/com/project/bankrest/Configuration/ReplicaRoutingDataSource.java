@@ -0,0 +1,171 @@
+package com.project.bankrest.Configuration;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Hands out replica connections to read-only transactions and primary connections to
+ * everything else. It has to sit behind a LazyConnectionDataSourceProxy: the
+ * transaction's read-only flag is only set after the transaction manager asked for a
+ * connection, so the physical one must be fetched on first statement.
+ *
+ * Replicas are used round-robin among those that passed the last health check; one
+ * that refuses a connection is dropped until the next check and the read goes to the
+ * primary. A user whose own write committed within the sticky window reads from the
+ * primary too, so they see what they just wrote even while the replicas lag.
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractDataSource implements AutoCloseable {
+
+    private static final int VALIDATION_TIMEOUT_SECONDS = 1;
+    // 0 when the replica has replayed everything it received, so an idle primary
+    // does not show up as lagging
+    private static final String POSTGRES_LAG_QUERY =
+            "SELECT CASE WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 "
+                    + "ELSE EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) END";
+
+    private final DataSource primary;
+    private final List<DataSource> replicas;
+    private final Supplier<String> currentUser;
+    private final long stickyWindowNanos;
+    private final Duration maxLag;
+
+    private final AtomicReference<List<DataSource>> healthyReplicas;
+    private final AtomicInteger next = new AtomicInteger();
+    private final Map<String, Long> stickyUntil = new ConcurrentHashMap<>();
+
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas, Supplier<String> currentUser,
+                                    Duration stickyWindow, Duration maxLag) {
+        this.primary = primary;
+        this.replicas = List.copyOf(replicas);
+        this.currentUser = currentUser;
+        this.stickyWindowNanos = stickyWindow.toNanos();
+        this.maxLag = maxLag;
+        this.healthyReplicas = new AtomicReference<>(this.replicas);
+    }
+
+    public int getHealthyReplicaCount() {
+        return healthyReplicas.get().size();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (!routeToReplica()) {
+            return primary.getConnection();
+        }
+        List<DataSource> healthy = healthyReplicas.get();
+        if (healthy.isEmpty()) {
+            return primary.getConnection();
+        }
+        DataSource replica = healthy.get(Math.floorMod(next.getAndIncrement(), healthy.size()));
+        try {
+            return replica.getConnection();
+        } catch (SQLException e) {
+            healthyReplicas.updateAndGet(current -> current.stream().filter(r -> r != replica).toList());
+            log.warn("Replica refused a connection, reading from the primary until the next check: {}", e.getMessage());
+            return primary.getConnection();
+        }
+    }
+
+    /**
+     * Explicit credentials always go to the primary.
+     */
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return primary.getConnection(username, password);
+    }
+
+    /**
+     * Re-evaluates every replica and drops expired sticky entries. A replica is healthy
+     * when it hands out a valid connection and, on PostgreSQL, replays within maxLag.
+     */
+    public void checkReplicas() {
+        List<DataSource> healthy = new ArrayList<>();
+        for (DataSource replica : replicas) {
+            if (isHealthy(replica)) {
+                healthy.add(replica);
+            }
+        }
+        List<DataSource> previous = healthyReplicas.getAndSet(List.copyOf(healthy));
+        if (previous.size() != healthy.size()) {
+            log.info("{} of {} read replicas healthy", healthy.size(), replicas.size());
+        }
+        long now = System.nanoTime();
+        stickyUntil.values().removeIf(until -> until - now <= 0);
+    }
+
+    /**
+     * Closes the replica pools; the primary belongs to whoever passed it in.
+     */
+    @Override
+    public void close() throws Exception {
+        for (DataSource replica : replicas) {
+            if (replica instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+    private boolean routeToReplica() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                rememberWriteOnCommit();
+            }
+            return false;
+        }
+        String user = currentUser.get();
+        if (user == null) {
+            return true;
+        }
+        Long until = stickyUntil.get(user);
+        return until == null || until - System.nanoTime() <= 0;
+    }
+
+    private void rememberWriteOnCommit() {
+        String user = currentUser.get();
+        if (user == null || stickyWindowNanos <= 0) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                stickyUntil.put(user, System.nanoTime() + stickyWindowNanos);
+            }
+        });
+    }
+
+    private boolean isHealthy(DataSource replica) {
+        try (Connection connection = replica.getConnection()) {
+            if (!connection.isValid(VALIDATION_TIMEOUT_SECONDS)) {
+                return false;
+            }
+            if (!"PostgreSQL".equals(connection.getMetaData().getDatabaseProductName())) {
+                return true;
+            }
+            try (Statement statement = connection.createStatement();
+                 ResultSet rs = statement.executeQuery(POSTGRES_LAG_QUERY)) {
+                double lagSeconds = rs.next() ? rs.getDouble(1) : 0;
+                return lagSeconds * 1000 <= maxLag.toMillis();
+            }
+        } catch (SQLException e) {
+            log.debug("Replica health check failed: {}", e.getMessage());
+            return false;
+        }
+    }
+}
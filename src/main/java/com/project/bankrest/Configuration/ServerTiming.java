@@ -0,0 +1,84 @@
+package com.project.bankrest.Configuration;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Per-request timing breakdown for the Server-Timing header. ServerTimingFilter opens
+ * a recording for each request when bankrest.server-timing.enabled is set; code on
+ * the request thread brackets its work with start() and stop(). Without an open
+ * recording, start() is a thread-local read and stop() returns at once.
+ */
+public final class ServerTiming {
+
+    private static final ThreadLocal<ServerTiming> CURRENT = new ThreadLocal<>();
+
+    private final Map<String, long[]> entries = new LinkedHashMap<>();
+
+    private ServerTiming() {
+    }
+
+    /**
+     * Start time to pass to stop(), or 0 when nothing is being recorded.
+     */
+    public static long start() {
+        return CURRENT.get() == null ? 0L : System.nanoTime();
+    }
+
+    public static void stop(String metric, long start) {
+        if (start == 0L) {
+            return;
+        }
+        ServerTiming timing = CURRENT.get();
+        if (timing != null) {
+            timing.add(metric, System.nanoTime() - start);
+        }
+    }
+
+    static ServerTiming begin() {
+        ServerTiming timing = new ServerTiming();
+        CURRENT.set(timing);
+        return timing;
+    }
+
+    static void end() {
+        CURRENT.remove();
+    }
+
+    void add(String metric, long nanos) {
+        long[] entry = entries.computeIfAbsent(metric, name -> new long[2]);
+        entry[0] += nanos;
+        entry[1]++;
+    }
+
+    /**
+     * Entries in first-recorded order, e.g. jwt;dur=0.41, db;dur=3.20;desc="4 calls".
+     */
+    String toHeader(long totalNanos) {
+        StringBuilder header = new StringBuilder();
+        entries.forEach((name, entry) -> {
+            header.append(name).append(";dur=").append(millis(entry[0]));
+            if (entry[1] > 1) {
+                header.append(";desc=\"").append(entry[1]).append(" calls\"");
+            }
+            header.append(", ");
+        });
+        return header.append("total;dur=").append(millis(totalNanos)).toString();
+    }
+
+    /**
+     * The same breakdown as key=value pairs for log lines: db_ms=3.20 db_count=4 ...
+     */
+    String toLogFields() {
+        StringBuilder fields = new StringBuilder();
+        entries.forEach((name, entry) -> fields.append(' ')
+                .append(name).append("_ms=").append(millis(entry[0])).append(' ')
+                .append(name).append("_count=").append(entry[1]));
+        return fields.toString().trim();
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.2f", nanos / 1_000_000.0);
+    }
+}
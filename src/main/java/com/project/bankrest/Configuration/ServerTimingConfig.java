@@ -0,0 +1,102 @@
+package com.project.bankrest.Configuration;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.MethodParameter;
+import org.springframework.core.Ordered;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.ModelAndView;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import java.time.Duration;
+
+/**
+ * Wiring for the Server-Timing breakdown, all of it only when
+ * bankrest.server-timing.enabled=true. Besides the filter it registers the Hibernate
+ * listener (db) and splits controller time into handler, up to the point the body
+ * is handed to the message converter, and serialize, for writing it. The JWT filter
+ * (jwt, user) and EncryptionUtil (crypto) record their parts unconditionally; with
+ * no recording open that costs them a thread-local read.
+ */
+@Configuration
+@ConditionalOnProperty(name = "bankrest.server-timing.enabled", havingValue = "true")
+public class ServerTimingConfig implements WebMvcConfigurer {
+
+    private static final String HANDLER_START = ServerTimingConfig.class.getName() + ".handlerStart";
+    private static final String BODY_START = ServerTimingConfig.class.getName() + ".bodyStart";
+
+    @Bean
+    public FilterRegistrationBean<ServerTimingFilter> serverTimingFilter(
+            @Value("${bankrest.server-timing.slow-threshold:PT0.5S}") Duration slowThreshold) {
+        FilterRegistrationBean<ServerTimingFilter> registration =
+                new FilterRegistrationBean<>(new ServerTimingFilter(slowThreshold));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer serverTimingHibernateListener() {
+        return properties -> properties.put("hibernate.session.events.auto", ServerTimingSessionListener.class.getName());
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new HandlerInterceptor() {
+            @Override
+            public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+                request.setAttribute(HANDLER_START, ServerTiming.start());
+                return true;
+            }
+
+            @Override
+            public void postHandle(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                   ModelAndView modelAndView) {
+                Object bodyStart = request.getAttribute(BODY_START);
+                if (bodyStart != null) {
+                    ServerTiming.stop("serialize", (Long) bodyStart);
+                } else {
+                    ServerTiming.stop("handler", (Long) request.getAttribute(HANDLER_START));
+                }
+            }
+        });
+    }
+
+    @ControllerAdvice
+    @ConditionalOnProperty(name = "bankrest.server-timing.enabled", havingValue = "true")
+    static class SerializationTimingAdvice implements ResponseBodyAdvice<Object> {
+
+        @Override
+        public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+            return true;
+        }
+
+        @Override
+        public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                      Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                      ServerHttpRequest request, ServerHttpResponse response) {
+            if (request instanceof ServletServerHttpRequest servletRequest) {
+                HttpServletRequest httpRequest = servletRequest.getServletRequest();
+                Object handlerStart = httpRequest.getAttribute(HANDLER_START);
+                if (handlerStart != null) {
+                    ServerTiming.stop("handler", (Long) handlerStart);
+                }
+                httpRequest.setAttribute(BODY_START, ServerTiming.start());
+            }
+            return body;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.project.bankrest.Configuration;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * Opens a ServerTiming recording around the whole request, security filters included.
+ * The body is buffered so the header can still be added after the controller has
+ * written it. Requests slower than slowThreshold are logged with their breakdown.
+ */
+@Slf4j
+public class ServerTimingFilter extends OncePerRequestFilter {
+
+    public static final String HEADER = "Server-Timing";
+
+    private static final String STREAM_PATH = "/api/cards/stream";
+
+    private final long slowThresholdNanos;
+
+    public ServerTimingFilter(Duration slowThreshold) {
+        this.slowThresholdNanos = slowThreshold.toNanos();
+    }
+
+    /**
+     * Event streams are left alone: the buffered body would only reach the client when
+     * the stream ends. They are recognised by path, since fetch-based clients send a
+     * wildcard Accept header rather than text/event-stream.
+     */
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        if (STREAM_PATH.equals(path)) {
+            return true;
+        }
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        return accept != null && accept.contains(MediaType.TEXT_EVENT_STREAM_VALUE);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        ServerTiming timing = ServerTiming.begin();
+        long started = System.nanoTime();
+        try {
+            filterChain.doFilter(request, wrapper);
+        } finally {
+            long total = System.nanoTime() - started;
+            ServerTiming.end();
+            wrapper.setHeader(HEADER, timing.toHeader(total));
+            wrapper.copyBodyToResponse();
+            if (total >= slowThresholdNanos) {
+                log.warn("slow_request method={} uri={} status={} total_ms={} {}",
+                        request.getMethod(), request.getRequestURI(), wrapper.getStatus(),
+                        String.format(Locale.ROOT, "%.2f", total / 1_000_000.0), timing.toLogFields());
+            }
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.project.bankrest.Configuration;
+
+import org.hibernate.SessionEventListener;
+
+/**
+ * Adds the time Hibernate spends executing JDBC statements and batches to the
+ * request's ServerTiming as db. Hibernate creates one per session.
+ */
+public class ServerTimingSessionListener implements SessionEventListener {
+
+    private long statementStart;
+    private long batchStart;
+
+    @Override
+    public void jdbcExecuteStatementStart() {
+        statementStart = ServerTiming.start();
+    }
+
+    @Override
+    public void jdbcExecuteStatementEnd() {
+        ServerTiming.stop("db", statementStart);
+    }
+
+    @Override
+    public void jdbcExecuteBatchStart() {
+        batchStart = ServerTiming.start();
+    }
+
+    @Override
+    public void jdbcExecuteBatchEnd() {
+        ServerTiming.stop("db", batchStart);
+    }
+}
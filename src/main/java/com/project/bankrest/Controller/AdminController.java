@@ -0,0 +1,45 @@
+package com.project.bankrest.Controller;
+
+import com.project.bankrest.DTO.AdminStats;
+import com.project.bankrest.Services.AdminStatsService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@Tag(
+        name = "Администрирование",
+        description = "Сводные данные для панели администратора"
+)
+@RestController
+@RequestMapping("/api/admin")
+@RequiredArgsConstructor
+@SecurityRequirement(name = "bearerAuth")
+public class AdminController {
+
+    private final AdminStatsService adminStatsService;
+
+    @Operation(
+            summary = "ADMIN: Статистика для панели администратора",
+            description = """
+                    Возвращает число пользователей по ролям, карт по статусам и ожидающих запросов на блокировку.
+                    Значения хранятся в памяти и обновляются по событиям; reconciledAt — время последней сверки с базой.
+                    """
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Статистика получена"),
+            @ApiResponse(responseCode = "403", description = "Доступ запрещён")
+    })
+    @GetMapping("/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<AdminStats> getStats() {
+        return ResponseEntity.ok(adminStatsService.getStats());
+    }
+}
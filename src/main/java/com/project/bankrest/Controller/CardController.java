@@ -1,23 +1,39 @@
 package com.project.bankrest.Controller;
 
+import com.project.bankrest.DTO.BalanceCacheStats;
+import com.project.bankrest.DTO.BulkCreateCardsRequest;
+import com.project.bankrest.DTO.BulkCreateCardsResponse;
+import com.project.bankrest.DTO.BulkStatusRequest;
+import com.project.bankrest.DTO.BulkStatusResponse;
+import com.project.bankrest.DTO.CardBalanceView;
+import com.project.bankrest.DTO.CardListVersion;
 import com.project.bankrest.DTO.CardResponse;
 import com.project.bankrest.DTO.TransferRequest;
 import com.project.bankrest.DTO.CreateCardRequest;
 import com.project.bankrest.DTO.UpdateStatusRequest;
 import com.project.bankrest.Entity.Card;
 import com.project.bankrest.Entity.User;
+import com.project.bankrest.Services.CardBulkIssuer;
 import com.project.bankrest.Services.CardService;
+import com.project.bankrest.Services.CardStreamService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Objects;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -35,29 +51,21 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 @SecurityRequirement(name = "bearerAuth")
 public class CardController {
 
-    private final CardService cardService;
+    /**
+     * Replaces Spring Security's default no-store for responses carrying an ETag, so
+     * browsers keep them privately and revalidate with If-None-Match.
+     */
+    private static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
 
-    private CardResponse toDTO(Card card) {
-        CardResponse dto = new CardResponse();
-        dto.setId(card.getId());
-        dto.setNumber(card.getNumber());
-        dto.setExpirationDate(card.getExpirationDate());
-        dto.setStatus(card.getStatus());
-        dto.setCvv(card.getCvv());
-        dto.setBalance(card.getBalance().toString());
-
-        if (card.getUser() != null) {
-            dto.setUserId(card.getUser().getId());
-            dto.setUserName(card.getUser().getName());
-        }
-        return dto;
-    }
+    private final CardService cardService;
+    private final CardBulkIssuer cardBulkIssuer;
+    private final CardStreamService cardStreamService;
 
     @Tag(name = "Карты (Администратор)", description = "Операции управления картами, доступные только ADMIN")
 
     @Operation(
             summary = "ADMIN: Создать новую карту",
-            description = "Создает новую карту и привязывает её к пользователю.",
+            description = "Создает новую карту и привязывает её к пользователю. Номер и CVV выпускаются сервером.",
             requestBody = @io.swagger.v3.oas.annotations.parameters.RequestBody(
                     description = "Данные новой карты",
                     required = true,
@@ -66,9 +74,7 @@ public class CardController {
                             examples = @ExampleObject("""
                                     {
                                       "userId": 3,
-                                      "number": "5321240011223344",
                                       "expirationDate": "2028-05",
-                                      "cvv": "771",
                                       "status": "ACTIVE",
                                       "balance": "5000"
                                     }
@@ -86,6 +92,41 @@ public class CardController {
     }
 
 
+    @Operation(
+            summary = "ADMIN: Массово выпустить карты",
+            description = """
+                    Выпускает cardsPerUser карт каждому пользователю из userIds одной транзакцией,
+                    вставляя строки пачками. Неизвестные ID пользователей пропускаются и возвращаются в ответе.
+                    """,
+            requestBody = @io.swagger.v3.oas.annotations.parameters.RequestBody(
+                    required = true,
+                    content = @Content(
+                            schema = @Schema(implementation = BulkCreateCardsRequest.class),
+                            examples = @ExampleObject("""
+                                    {
+                                      "userIds": [3, 4, 5],
+                                      "cardsPerUser": 2,
+                                      "expirationDate": "2028-05",
+                                      "balance": "0"
+                                    }
+                                    """)
+                    )
+            )
+    )
+    @ApiResponse(responseCode = "201", description = "Карты выпущены",
+            content = @Content(schema = @Schema(implementation = BulkCreateCardsResponse.class)))
+    @ApiResponse(responseCode = "400", description = "Некорректный запрос")
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping("/admin/bulk")
+    public ResponseEntity<?> createCards(@RequestBody BulkCreateCardsRequest request) {
+        try {
+            return ResponseEntity.status(HttpStatus.CREATED).body(cardBulkIssuer.issue(request));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+
     @Operation(
             summary = "ADMIN: Обновить статус карты",
             description = "Изменяет статус карты, например ACTIVE → BLOCKED.",
@@ -106,9 +147,43 @@ public class CardController {
     }
 
 
+    @Operation(
+            summary = "ADMIN: Массово обновить статус карт",
+            description = """
+                    Меняет статус сразу у многих карт одним UPDATE на пачку.
+                    Карты выбираются по списку cardIds (при указании currentStatus — только карты в этом статусе)
+                    либо, без cardIds, по currentStatus. Возвращает результат по каждой карте.
+                    """,
+            requestBody = @io.swagger.v3.oas.annotations.parameters.RequestBody(
+                    required = true,
+                    content = @Content(
+                            schema = @Schema(implementation = BulkStatusRequest.class),
+                            examples = @ExampleObject("""
+                                    {
+                                      "currentStatus": "BLOCK_REQUESTED",
+                                      "status": "BLOCKED"
+                                    }
+                                    """)
+                    )
+            )
+    )
+    @ApiResponse(responseCode = "200", description = "Статусы обновлены",
+            content = @Content(schema = @Schema(implementation = BulkStatusResponse.class)))
+    @ApiResponse(responseCode = "400", description = "Некорректный запрос")
+    @PreAuthorize("hasRole('ADMIN')")
+    @PatchMapping("/admin/status/bulk")
+    public ResponseEntity<?> updateCardStatuses(@RequestBody BulkStatusRequest request) {
+        try {
+            return ResponseEntity.ok(cardService.updateCardStatuses(request));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+
     @Operation(
             summary = "ADMIN: Обновить данные карты",
-            description = "Изменяет поля существующей карты.",
+            description = "Изменяет поля существующей карты. Номер карты изменить нельзя: его можно не передавать или передать текущий.",
             requestBody = @io.swagger.v3.oas.annotations.parameters.RequestBody(
                     description = "Данные для обновления",
                     required = true,
@@ -116,6 +191,7 @@ public class CardController {
             )
     )
     @ApiResponse(responseCode = "200", description = "Данные обновлены")
+    @ApiResponse(responseCode = "400", description = "Передан другой номер карты")
     @ApiResponse(responseCode = "404", description = "Карта не найдена")
     @PreAuthorize("hasRole('ADMIN')")
     @PutMapping("/admin/{cardId}")
@@ -123,8 +199,11 @@ public class CardController {
             @PathVariable Long cardId,
             @RequestBody CreateCardRequest request
     ) {
-        Card updatedCard = cardService.updateCard(cardId, request);
-        return ResponseEntity.ok(updatedCard);
+        try {
+            return ResponseEntity.ok(cardService.updateCard(cardId, request));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
     }
 
 
@@ -158,11 +237,31 @@ public class CardController {
     @PreAuthorize("hasRole('ADMIN')")
     @GetMapping("/admin/all")
     public ResponseEntity<List<CardResponse>> getAllCards() {
-        List<CardResponse> list = cardService.getAllCards()
-                .stream()
-                .map(this::toDTO)
-                .toList();
-        return ResponseEntity.ok(list);
+        return ResponseEntity.ok(cardService.getAllCards());
+    }
+
+    @Operation(
+            summary = "ADMIN: Очередь запросов на блокировку",
+            description = "Возвращает постранично карты в статусе BLOCK_REQUESTED, от старых к новым."
+    )
+    @ApiResponse(responseCode = "200", description = "Страница запросов на блокировку")
+    @ApiResponse(responseCode = "403", description = "Доступ запрещён")
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("/admin/block-requests")
+    public ResponseEntity<Page<CardResponse>> getBlockRequests(Pageable pageable) {
+        return ResponseEntity.ok(cardService.getBlockRequests(pageable));
+    }
+
+    @Operation(
+            summary = "ADMIN: Статистика кэша балансов",
+            description = "Возвращает размер кэша балансов, число попаданий и промахов, долю попаданий и оценку занимаемой памяти."
+    )
+    @ApiResponse(responseCode = "200", description = "Статистика кэша")
+    @ApiResponse(responseCode = "403", description = "Доступ запрещён")
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("/admin/balance-cache")
+    public ResponseEntity<BalanceCacheStats> getBalanceCacheStats() {
+        return ResponseEntity.ok(cardService.getBalanceCacheStats());
     }
 
     @Tag(name = "Карты (Пользователь)", description = "Операции с картами текущего пользователя")
@@ -184,53 +283,103 @@ public class CardController {
             @PathVariable Long userId,
             Authentication authentication
     ) {
-        List<CardResponse> list = cardService.getAllCardsByUserId(userId)
-                .stream()
-                .map(this::toDTO)
-                .toList();
-        return ResponseEntity.ok(list);
+        return ResponseEntity.ok(cardService.getAllCardsByUserId(userId));
     }
 
 
     @Operation(
             summary = "USER: Получить собственные карты",
-            description = "Возвращает собственные карты пользователя. Поддерживается пагинация и поиск.",
+            description = """
+                    Возвращает собственные карты пользователя. Поддерживается пагинация и поиск.
+                    Ответ содержит ETag; при совпадении If-None-Match возвращается 304 без тела.
+                    """,
             parameters = {
                     @Parameter(name = "search", description = "Поиск (по номеру, статусу и т.п.)")
             }
     )
     @ApiResponse(responseCode = "200", description = "Список карт")
+    @ApiResponse(responseCode = "304", description = "Карты не изменились")
     @ApiResponse(responseCode = "401", description = "Не авторизован")
     @GetMapping("/my")
     public ResponseEntity<Page<CardResponse>> getMyCards(
             @RequestParam(required = false) String search,
             Pageable pageable,
-            Authentication authentication
+            Authentication authentication,
+            WebRequest webRequest
     ) {
         User currentUser = (User) authentication.getPrincipal();
 
-        Page<CardResponse> result = cardService
-                .getUserCards(currentUser.getId(), search, pageable)
-                .map(this::toDTO);
+        String etag = cardListETag(currentUser, cardService.getUserCardsVersion(currentUser.getId()), search, pageable);
+        if (webRequest.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(REVALIDATE).eTag(etag).build();
+        }
+
+        Page<CardResponse> result = cardService.getUserCards(currentUser.getId(), search, pageable);
 
-        return ResponseEntity.ok(result);
+        return ResponseEntity.ok().cacheControl(REVALIDATE).eTag(etag).body(result);
+    }
+
+    @Operation(
+            summary = "USER: Поток изменений карт (SSE)",
+            description = """
+                    Открывает поток text/event-stream для текущего пользователя. После каждого изменения
+                    его карт приходит событие `card` с данными {cardId, status, balance, version}; при
+                    массовой смене статуса только {cardId, status}, при удалении {cardId, deleted: true}.
+                    Каждые 25 секунд приходит комментарий-heartbeat. Токен передаётся в заголовке
+                    Authorization, поэтому клиент читает поток через fetch, а не EventSource. После
+                    разрыва нужно переподключиться и перечитать /api/cards/my.
+                    """
+    )
+    @ApiResponse(responseCode = "200", description = "Поток открыт")
+    @ApiResponse(responseCode = "401", description = "Не авторизован")
+    @ApiResponse(responseCode = "503", description = "Достигнут предел открытых потоков на узле")
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamMyCards(Authentication authentication) {
+        if (authentication == null || !(authentication.getPrincipal() instanceof User currentUser)) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED);
+        }
+        try {
+            return cardStreamService.subscribe(currentUser.getId());
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage());
+        }
     }
 
 
     @Operation(
             summary = "USER: Проверить баланс карты",
-            description = "Возвращает текущий баланс карты, принадлежащей пользователю."
+            description = """
+                    Возвращает текущий баланс карты, принадлежащей пользователю.
+                    Ответ содержит ETag; при совпадении If-None-Match возвращается 304 без тела.
+                    """
     )
     @ApiResponse(responseCode = "200", description = "Баланс возвращён")
+    @ApiResponse(responseCode = "304", description = "Баланс не изменился")
     @ApiResponse(responseCode = "404", description = "Карта не найдена или не принадлежит пользователю")
     @GetMapping("/{cardId}/balance")
     public ResponseEntity<BigDecimal> getBalance(
             @PathVariable Long cardId,
-            Authentication auth
+            Authentication auth,
+            WebRequest webRequest
     ) {
         User currentUser = (User) auth.getPrincipal();
-        BigDecimal balance = cardService.getCardBalance(cardId, currentUser.getId());
-        return ResponseEntity.ok(balance);
+
+        // The ETag is built from the version the balance was read at, so it always
+        // describes this body, and a cached balance needs no query for it.
+        CardBalanceView view = cardService.getCardBalance(cardId, currentUser.getId());
+        String etag = "\"" + cardId + "-" + view.getVersion() + "\"";
+        if (webRequest.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(REVALIDATE).eTag(etag).build();
+        }
+        return ResponseEntity.ok().cacheControl(REVALIDATE).eTag(etag).body(view.getBalance());
+    }
+
+    private static String cardListETag(User user, CardListVersion version, String search, Pageable pageable) {
+        // the owner name is part of every CardResponse, and the same URL serves
+        // different pages and searches
+        int request = Objects.hash(user.getId(), user.getName(), search, pageable);
+        return "\"" + version.getCount() + "-" + Long.toHexString(version.getIdSum())
+                + "-" + Long.toHexString(version.getVersionSum()) + "-" + Integer.toHexString(request) + "\"";
     }
 
 
@@ -312,6 +461,7 @@ public class CardController {
     )
     @ApiResponse(responseCode = "200", description = "Перевод выполнен")
     @ApiResponse(responseCode = "400", description = "Ошибка перевода")
+    @ApiResponse(responseCode = "409", description = "Карта изменена параллельным запросом, перевод можно повторить")
     @PostMapping("/transfer")
     public ResponseEntity<String> transferMoney(@RequestBody TransferRequest request) {
         try {
@@ -319,6 +469,8 @@ public class CardController {
             return ResponseEntity.ok("Transfer successful");
         } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body("Card was changed by another request, please retry.");
         }
     }
 }
@@ -1,12 +1,22 @@
 package com.project.bankrest.Controller;
 
+import com.project.bankrest.DTO.UserDTO;
+import com.project.bankrest.DTO.UserImportReport;
 import com.project.bankrest.Entity.User;
+import com.project.bankrest.Services.UserImporter;
 import com.project.bankrest.Services.UserService;
+import com.project.bankrest.Services.UsernameTakenException;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.io.InputStream;
 import java.util.List;
 
 import io.swagger.v3.oas.annotations.Operation;
@@ -29,7 +39,10 @@ import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 @SecurityRequirement(name = "bearerAuth")
 public class UserController {
 
+    private static final MediaType TEXT_CSV = MediaType.parseMediaType("text/csv");
+
     private final UserService userService;
+    private final UserImporter userImporter;
 
     @Operation(
             summary = "ADMIN: Получить список пользователей с поиском и пагинацией",
@@ -58,6 +71,37 @@ public class UserController {
         return ResponseEntity.ok(userService.getUsers(search, page, size));
     }
 
+    @Operation(
+            summary = "ADMIN: Поиск пользователей",
+            description = """
+                    Ищет пользователей по вхождению строки в логин или имя.
+                    Лучшие совпадения идут первыми. Для следующей страницы передайте nextCursor из предыдущего ответа.
+                    """,
+            parameters = {
+                    @Parameter(name = "q", description = "Строка поиска", example = "alex", required = true),
+                    @Parameter(name = "cursor", description = "Курсор следующей страницы"),
+                    @Parameter(name = "size", description = "Размер страницы (не больше 100)", example = "20")
+            }
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Результаты поиска получены"),
+            @ApiResponse(responseCode = "400", description = "Пустой запрос или неверный курсор"),
+            @ApiResponse(responseCode = "403", description = "Доступ запрещён")
+    })
+    @GetMapping("/search")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> searchUsers(
+            @RequestParam String q,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size
+    ) {
+        try {
+            return ResponseEntity.ok(userService.searchUsers(q, cursor, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
     @Operation(
             summary = "Создать нового пользователя",
             description = """
@@ -82,11 +126,18 @@ public class UserController {
     )
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "Пользователь создан"),
-            @ApiResponse(responseCode = "400", description = "Некорректные данные")
+            @ApiResponse(responseCode = "400", description = "Некорректные данные"),
+            @ApiResponse(responseCode = "409", description = "Пользователь с таким username уже существует")
     })
     @PostMapping
     public ResponseEntity<User> addUser(@RequestBody User user) {
-        return ResponseEntity.ok(userService.addUser(user));
+        try {
+            return ResponseEntity.ok(userService.addUser(user));
+        } catch (UsernameTakenException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage());
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
     }
 
     @Operation(
@@ -106,6 +157,55 @@ public class UserController {
         return ResponseEntity.ok(userService.getUserById(id));
     }
 
+    @Operation(
+            summary = "ADMIN: Массовый импорт пользователей",
+            description = """
+                    Импортирует пользователей из потока CSV (заголовок username,password,name) или NDJSON
+                    (по одному объекту {"username", "password", "name"} на строку). Файл читается построчно,
+                    пользователи создаются с ролью USER. В ответе — число импортированных строк и ошибки по строкам.
+                    """
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Импорт завершён, отчёт в теле ответа"),
+            @ApiResponse(responseCode = "403", description = "Доступ запрещён"),
+            @ApiResponse(responseCode = "415", description = "Неподдерживаемый формат")
+    })
+    @PostMapping(value = "/admin/import", consumes = {"text/csv", "application/x-ndjson"})
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<UserImportReport> importUsers(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            InputStream body
+    ) {
+        UserImporter.Format format = MediaType.parseMediaType(contentType).isCompatibleWith(TEXT_CSV)
+                ? UserImporter.Format.CSV
+                : UserImporter.Format.NDJSON;
+        return ResponseEntity.ok(userImporter.importUsers(body, format));
+    }
+
+    @Operation(
+            summary = "ADMIN: Пользователи со статистикой по картам",
+            description = """
+                    Возвращает страницу пользователей с количеством карт и разбивкой по статусам.
+                    Статистика считается одним агрегирующим запросом на страницу.
+                    """,
+            parameters = {
+                    @Parameter(name = "page", description = "Номер страницы (0 = первая)", example = "0"),
+                    @Parameter(name = "size", description = "Размер страницы", example = "20")
+            }
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Список пользователей получен"),
+            @ApiResponse(responseCode = "403", description = "Доступ запрещён")
+    })
+    @GetMapping("/admin/overview")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Page<UserDTO>> getUsersWithCardStats(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size
+    ) {
+        return ResponseEntity.ok(userService.getUsersWithCardStats(page, size));
+    }
+
     @Operation(
             summary = "ADMIN: Получить всех пользователей (без пагинации)",
             description = "Возвращает полный список пользователей. Только для администраторов."
@@ -0,0 +1,20 @@
+package com.project.bankrest.DTO;
+
+import com.project.bankrest.Entity.CardStatus;
+import com.project.bankrest.Entity.Role;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.Instant;
+import java.util.Map;
+
+@Getter
+@AllArgsConstructor
+public class AdminStats {
+    private long totalUsers;
+    private Map<Role, Long> usersByRole;
+    private long totalCards;
+    private Map<CardStatus, Long> cardsByStatus;
+    private long pendingBlockRequests;
+    private Instant reconciledAt;
+}
@@ -0,0 +1,18 @@
+package com.project.bankrest.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BalanceCacheStats {
+    private long size;
+    private long maxSize;
+    private long hits;
+    private long misses;
+    private double hitRate;
+    private long evictions;
+    private long estimatedBytes;
+}
@@ -0,0 +1,19 @@
+package com.project.bankrest.DTO;
+
+import com.project.bankrest.Entity.CardStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkCreateCardsRequest {
+    private List<Long> userIds;
+    private Integer cardsPerUser;
+    private String expirationDate;
+    private CardStatus status;
+    private String balance;
+}
@@ -0,0 +1,16 @@
+package com.project.bankrest.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkCreateCardsResponse {
+    private int requested;
+    private int created;
+    private List<Long> unknownUserIds;
+}
@@ -0,0 +1,17 @@
+package com.project.bankrest.DTO;
+
+import com.project.bankrest.Entity.CardStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkStatusRequest {
+    private List<Long> cardIds;
+    private CardStatus currentStatus;
+    private CardStatus status;
+}
@@ -0,0 +1,28 @@
+package com.project.bankrest.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkStatusResponse {
+
+    public enum Outcome {
+        UPDATED, UNCHANGED, NOT_FOUND
+    }
+
+    private long updated;
+    private long unchanged;
+    private long notFound;
+    private Map<Long, Outcome> results;
+
+    public static BulkStatusResponse of(Map<Long, Outcome> results) {
+        long updated = results.values().stream().filter(o -> o == Outcome.UPDATED).count();
+        long notFound = results.values().stream().filter(o -> o == Outcome.NOT_FOUND).count();
+        return new BulkStatusResponse(updated, results.size() - updated - notFound, notFound, results);
+    }
+}
@@ -0,0 +1,13 @@
+package com.project.bankrest.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+
+@Getter
+@AllArgsConstructor
+public class CardBalanceView {
+    private BigDecimal balance;
+    private Long version;
+}
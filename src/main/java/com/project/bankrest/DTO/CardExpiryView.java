@@ -0,0 +1,11 @@
+package com.project.bankrest.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class CardExpiryView {
+    private Long id;
+    private Integer expiryMonth;
+}
@@ -0,0 +1,17 @@
+package com.project.bankrest.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Aggregate over a user's cards that changes whenever any of them is created, updated
+ * or deleted: updates bump a version, and inserts and deletes change the count and the
+ * id sum.
+ */
+@Getter
+@AllArgsConstructor
+public class CardListVersion {
+    private long count;
+    private long idSum;
+    private long versionSum;
+}
@@ -1,15 +1,36 @@
 package com.project.bankrest.DTO;
 
+import com.project.bankrest.Entity.CardStatus;
 import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
 
 @Data
+@NoArgsConstructor
 public class CardResponse {
     private Long id;
     private String number;
     private String expirationDate;
-    private String status;
+    private CardStatus status;
     private String cvv;
     private String balance;
     private Long userId;
     private String userName;
+
+    /**
+     * Used by the JPQL constructor projections in CardRepository, so listings are
+     * read straight into the response without hydrating managed Card entities.
+     */
+    public CardResponse(Long id, String number, String expirationDate, CardStatus status,
+                        String cvv, BigDecimal balance, Long userId, String userName) {
+        this.id = id;
+        this.number = number;
+        this.expirationDate = expirationDate;
+        this.status = status;
+        this.cvv = cvv;
+        this.balance = balance != null ? balance.toString() : null;
+        this.userId = userId;
+        this.userName = userName;
+    }
 }
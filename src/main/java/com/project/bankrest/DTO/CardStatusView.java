@@ -0,0 +1,12 @@
+package com.project.bankrest.DTO;
+
+import com.project.bankrest.Entity.CardStatus;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class CardStatusView {
+    private Long id;
+    private CardStatus status;
+}
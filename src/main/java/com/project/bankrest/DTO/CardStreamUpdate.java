@@ -0,0 +1,27 @@
+package com.project.bankrest.DTO;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.project.bankrest.Entity.CardStatus;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+
+/**
+ * Data of a card event on /api/cards/stream. Bulk status changes carry only the
+ * status; a removed card only cardId and deleted.
+ */
+@Getter
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CardStreamUpdate {
+    private final Long cardId;
+    private final CardStatus status;
+    private final BigDecimal balance;
+    private final Long version;
+    private final Boolean deleted;
+
+    public static CardStreamUpdate deleted(Long cardId) {
+        return new CardStreamUpdate(cardId, null, null, null, true);
+    }
+}
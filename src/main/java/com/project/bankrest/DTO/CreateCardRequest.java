@@ -1,5 +1,6 @@
 package com.project.bankrest.DTO;
 
+import com.project.bankrest.Entity.CardStatus;
 import lombok.Data;
 
 @Data
@@ -7,7 +8,7 @@ public class CreateCardRequest {
     private String number;
     private String cvv;
     private String expirationDate;
-    private String status;
+    private CardStatus status;
     private String balance;
     private Long userId;
 }
@@ -0,0 +1,23 @@
+package com.project.bankrest.DTO;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.Instant;
+
+/**
+ * One outbox row as handed to an OutboxSink. Ids increase in commit order as far as
+ * the relay can tell, so consumers can use them to order and deduplicate; a row that
+ * committed after the relay stepped over its id arrives later, behind higher ids.
+ */
+@Getter
+@AllArgsConstructor
+public class OutboxMessage {
+    private final long id;
+    private final String type;
+    private final long cardId;
+    @JsonRawValue
+    private final String payload;
+    private final Instant createdAt;
+}
@@ -1,8 +1,9 @@
 package com.project.bankrest.DTO;
 
+import com.project.bankrest.Entity.CardStatus;
 import lombok.Data;
 
 @Data
 public class UpdateStatusRequest {
-    private String status;
+    private CardStatus status;
 }
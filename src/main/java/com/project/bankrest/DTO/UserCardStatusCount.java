@@ -0,0 +1,13 @@
+package com.project.bankrest.DTO;
+
+import com.project.bankrest.Entity.CardStatus;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class UserCardStatusCount {
+    private Long userId;
+    private CardStatus status;
+    private long count;
+}
@@ -1,8 +1,11 @@
 package com.project.bankrest.DTO;
 
+import com.project.bankrest.Entity.CardStatus;
 import com.project.bankrest.Entity.Role;
 import lombok.*;
 
+import java.util.Map;
+
 @Getter
 @Setter
 @NoArgsConstructor
@@ -14,4 +17,5 @@ public class UserDTO {
     private String username;
     private Role role;
     private int CardCount;
+    private Map<CardStatus, Long> cardsByStatus;
 }
\ No newline at end of file
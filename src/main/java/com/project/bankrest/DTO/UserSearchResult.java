@@ -0,0 +1,17 @@
+package com.project.bankrest.DTO;
+
+import com.project.bankrest.Entity.Role;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserSearchResult {
+    private Long id;
+    private String username;
+    private String name;
+    private Role role;
+    private int rank;
+}
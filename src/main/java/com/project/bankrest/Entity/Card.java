@@ -8,6 +8,8 @@ import jakarta.persistence.*;
 import lombok.*;
 
 import java.math.BigDecimal;
+import java.time.DateTimeException;
+import java.time.YearMonth;
 @Getter
 @Setter
 @NoArgsConstructor
@@ -15,21 +17,36 @@ import java.math.BigDecimal;
 @Builder
 @Entity
 @Table(name = "cards")
+@NamedEntityGraph(name = "Card.user", attributeNodes = @NamedAttributeNode("user"))
 public class Card {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cards_seq")
+    @SequenceGenerator(name = "cards_seq", sequenceName = "cards_seq", allocationSize = 50)
     private Long id;
 
     @Convert(converter = EncryptStringConverter.class)
     @Column(name = "card_number", unique = true)
     private String number;
 
+    @JsonIgnore
+    @Column(name = "number_hash", unique = true)
+    private String numberHash;
+
     @Convert(converter = EncryptStringConverter.class)
     @Column(name = "date")
     private String expirationDate;
 
-    private String status;
+    /**
+     * Plaintext copy of the expiry as yyyyMM, kept in sync with the encrypted
+     * expirationDate so expired cards can be found through an index.
+     */
+    @JsonIgnore
+    @Column(name = "expiry_month")
+    private Integer expiryMonth;
+
+    @Column(nullable = false)
+    private CardStatus status;
 
     @Convert(converter = EncryptStringConverter.class)
     private String cvv;
@@ -37,8 +54,62 @@ public class Card {
     @Convert(converter = EncryptBigDecimalConverter.class)
     private BigDecimal balance = BigDecimal.ZERO;
 
+    /**
+     * Bumped on every change, including bulk JPQL updates, and used for ETags.
+     */
+    @JsonIgnore
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
     @JsonIgnore
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
+
+    /**
+     * Status as read from the database, so events can tell what a change replaced.
+     */
+    @JsonIgnore
+    @Transient
+    @Setter(AccessLevel.NONE)
+    private CardStatus loadedStatus;
+
+    @PostLoad
+    void rememberLoadedStatus() {
+        loadedStatus = status;
+    }
+
+    @PrePersist
+    @PreUpdate
+    public void syncExpiryMonth() {
+        YearMonth expiry = parseExpiry(expirationDate);
+        expiryMonth = expiry == null ? null : expiry.getYear() * 100 + expiry.getMonthValue();
+    }
+
+    /**
+     * Accepts the formats clients send: MM/yy, MM/yyyy, yyyy-MM and yyyy-MM-dd.
+     * Returns null for anything else rather than failing the write.
+     */
+    public static YearMonth parseExpiry(String value) {
+        if (value == null) {
+            return null;
+        }
+        String trimmed = value.trim();
+        try {
+            int slash = trimmed.indexOf('/');
+            if (slash > 0) {
+                int month = Integer.parseInt(trimmed.substring(0, slash));
+                int year = Integer.parseInt(trimmed.substring(slash + 1));
+                return YearMonth.of(year < 100 ? 2000 + year : year, month);
+            }
+            String[] parts = trimmed.split("-");
+            if (parts.length >= 2) {
+                return YearMonth.of(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]));
+            }
+        } catch (NumberFormatException | DateTimeException e) {
+            return null;
+        }
+        return null;
+    }
 }
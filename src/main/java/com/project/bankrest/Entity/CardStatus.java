@@ -0,0 +1,24 @@
+package com.project.bankrest.Entity;
+
+public enum CardStatus {
+    ACTIVE(1), BLOCKED(2), BLOCK_REQUESTED(3), EXPIRED(4);
+
+    private final short code;
+
+    CardStatus(int code) {
+        this.code = (short) code;
+    }
+
+    public short getCode() {
+        return code;
+    }
+
+    public static CardStatus fromCode(short code) {
+        for (CardStatus status : values()) {
+            if (status.code == code) {
+                return status;
+            }
+        }
+        throw new IllegalArgumentException("Unknown card status code: " + code);
+    }
+}
@@ -0,0 +1,22 @@
+package com.project.bankrest.Entity;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/**
+ * Stores CardStatus as its fixed SMALLINT code rather than the ordinal or the name,
+ * so reordering or renaming constants never rewrites existing rows.
+ */
+@Converter(autoApply = true)
+public class CardStatusConverter implements AttributeConverter<CardStatus, Short> {
+
+    @Override
+    public Short convertToDatabaseColumn(CardStatus attribute) {
+        return attribute == null ? null : attribute.getCode();
+    }
+
+    @Override
+    public CardStatus convertToEntityAttribute(Short dbData) {
+        return dbData == null ? null : CardStatus.fromCode(dbData);
+    }
+}
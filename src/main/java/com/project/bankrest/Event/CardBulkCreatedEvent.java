@@ -0,0 +1,20 @@
+package com.project.bankrest.Event;
+
+import com.project.bankrest.Entity.CardStatus;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Published for cards inserted by the bulk issuer, which bypasses the entities and so
+ * produces no CardEvents. cardIds and userIds are parallel lists; every card of the
+ * event has the same status.
+ */
+@Getter
+@AllArgsConstructor
+public class CardBulkCreatedEvent {
+    private final List<Long> cardIds;
+    private final List<Long> userIds;
+    private final CardStatus status;
+}
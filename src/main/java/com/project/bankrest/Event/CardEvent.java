@@ -0,0 +1,44 @@
+package com.project.bankrest.Event;
+
+import com.project.bankrest.Entity.Card;
+import com.project.bankrest.Entity.CardStatus;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+
+/**
+ * Published by CardService for every card it writes. Values are copied from the card
+ * when the event is created, after the write has been flushed, so version is the one
+ * the row will have once the transaction commits.
+ */
+@Getter
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class CardEvent {
+
+    public enum Type {
+        CREATED, UPDATED, DELETED
+    }
+
+    private final Type type;
+    private final Long cardId;
+    private final Long userId;
+    private final BigDecimal balance;
+    private final CardStatus status;
+    /** Status the card had when it was loaded; null for new cards or when not known. */
+    private final CardStatus previousStatus;
+    private final Long version;
+
+    public static CardEvent of(Type type, Card card) {
+        return new CardEvent(type, card.getId(), card.getUser().getId(), card.getBalance(),
+                card.getStatus(), card.getLoadedStatus(), card.getVersion());
+    }
+
+    /**
+     * For cards removed without being loaded, such as by UserPurgeJob.
+     */
+    public static CardEvent deleted(Long cardId, Long userId) {
+        return new CardEvent(Type.DELETED, cardId, userId, null, null, null, null);
+    }
+}
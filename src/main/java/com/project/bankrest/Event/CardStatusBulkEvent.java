@@ -0,0 +1,18 @@
+package com.project.bankrest.Event;
+
+import com.project.bankrest.Entity.CardStatus;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Published for status changes applied by bulk UPDATE, which bypass the entities and
+ * so produce no CardEvents. Carries no versions or balances.
+ */
+@Getter
+@AllArgsConstructor
+public class CardStatusBulkEvent {
+    private final List<Long> cardIds;
+    private final CardStatus status;
+}
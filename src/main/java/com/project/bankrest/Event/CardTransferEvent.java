@@ -0,0 +1,18 @@
+package com.project.bankrest.Event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+
+/**
+ * Published by CardService after a completed transfer, in addition to the
+ * CardEvents for both cards.
+ */
+@Getter
+@AllArgsConstructor
+public class CardTransferEvent {
+    private final Long fromCardId;
+    private final Long toCardId;
+    private final BigDecimal amount;
+}
@@ -0,0 +1,23 @@
+package com.project.bankrest.Event;
+
+import com.project.bankrest.Entity.Role;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published by UserService and UserImporter for every user they create, change or
+ * delete. Role and previousRole are null when the writer does not know them.
+ */
+@Getter
+@AllArgsConstructor
+public class UserEvent {
+
+    public enum Type {
+        CREATED, UPDATED, DELETED
+    }
+
+    private final Type type;
+    private final Long userId;
+    private final Role role;
+    private final Role previousRole;
+}
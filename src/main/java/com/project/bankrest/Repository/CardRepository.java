@@ -1,25 +1,133 @@
 package com.project.bankrest.Repository;
 
+import com.project.bankrest.DTO.CardBalanceView;
+import com.project.bankrest.DTO.CardExpiryView;
+import com.project.bankrest.DTO.CardListVersion;
+import com.project.bankrest.DTO.CardOwnershipView;
+import com.project.bankrest.DTO.CardResponse;
+import com.project.bankrest.DTO.CardStatusView;
+import com.project.bankrest.DTO.GroupCount;
+import com.project.bankrest.DTO.UserCardStatusCount;
 import com.project.bankrest.Entity.Card;
+import com.project.bankrest.Entity.CardStatus;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import jakarta.persistence.LockModeType;
 import jakarta.transaction.Transactional;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 
 @Repository
 public interface CardRepository extends JpaRepository<Card, Long> {
+    @EntityGraph("Card.user")
     List<Card> findByUserId(Long userId);
-    @Query("SELECT c FROM Card c JOIN FETCH c.user ORDER BY c.id DESC")
-    List<Card> findAllWithUserOrderByIdAsc();
 
-    @Query("SELECT c FROM Card c JOIN FETCH c.user WHERE c.user.id = :userId ORDER BY c.id ASC")
-    Page<Card> findByUser_IdWithUserEagerly(Long userId, Pageable pageable);
+    @Query("SELECT new com.project.bankrest.DTO.CardResponse(c.id, c.number, c.expirationDate, c.status, c.cvv, c.balance, u.id, u.name) " +
+            "FROM Card c JOIN c.user u ORDER BY c.id DESC")
+    List<CardResponse> findAllResponses();
 
-    @Query("SELECT c FROM Card c JOIN FETCH c.user WHERE c.user.id = :userId AND c.number LIKE %:search% ORDER BY c.id ASC")
-    Page<Card> findByUser_IdAndNumberContainingWithUserEagerly(Long userId, String search, Pageable pageable);
+    @Query("SELECT new com.project.bankrest.DTO.CardResponse(c.id, c.number, c.expirationDate, c.status, c.cvv, c.balance, u.id, u.name) " +
+            "FROM Card c JOIN c.user u WHERE u.id = :userId ORDER BY c.id ASC")
+    List<CardResponse> findResponsesByUserId(Long userId);
+
+    @Query(value = "SELECT new com.project.bankrest.DTO.CardResponse(c.id, c.number, c.expirationDate, c.status, c.cvv, c.balance, u.id, u.name) " +
+            "FROM Card c JOIN c.user u WHERE u.id = :userId ORDER BY c.id ASC",
+            countQuery = "SELECT COUNT(c) FROM Card c WHERE c.user.id = :userId")
+    Page<CardResponse> findResponsesByUserId(Long userId, Pageable pageable);
+
+    @Query(value = "SELECT new com.project.bankrest.DTO.CardResponse(c.id, c.number, c.expirationDate, c.status, c.cvv, c.balance, u.id, u.name) " +
+            "FROM Card c JOIN c.user u WHERE u.id = :userId AND c.number LIKE %:search% ORDER BY c.id ASC",
+            countQuery = "SELECT COUNT(c) FROM Card c WHERE c.user.id = :userId AND c.number LIKE %:search%")
+    Page<CardResponse> findResponsesByUserIdAndNumberContaining(Long userId, String search, Pageable pageable);
+
+    /**
+     * The status is a literal rather than a parameter: the partial index
+     * idx_cards_block_requested (WHERE status = 3) is only usable by a plan that knows
+     * the value, and a generic plan for a bound status does not.
+     */
+    @Query(value = "SELECT new com.project.bankrest.DTO.CardResponse(c.id, c.number, c.expirationDate, c.status, c.cvv, c.balance, u.id, u.name) " +
+            "FROM Card c JOIN c.user u WHERE c.status = com.project.bankrest.Entity.CardStatus.BLOCK_REQUESTED ORDER BY c.id ASC",
+            countQuery = "SELECT COUNT(c) FROM Card c WHERE c.status = com.project.bankrest.Entity.CardStatus.BLOCK_REQUESTED")
+    Page<CardResponse> findBlockRequests(Pageable pageable);
+
+    /**
+     * Locks the rows it reads, so a status checked here still holds when the caller's
+     * UPDATE runs.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT new com.project.bankrest.DTO.CardStatusView(c.id, c.status) FROM Card c WHERE c.id IN :ids")
+    List<CardStatusView> lockStatusesByIdIn(Collection<Long> ids);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c.id FROM Card c WHERE c.status = :status AND c.id > :afterId ORDER BY c.id ASC")
+    List<Long> lockIdsByStatusAfter(CardStatus status, Long afterId, Pageable pageable);
+
+    @Query("SELECT c.numberHash FROM Card c WHERE c.numberHash IN :hashes")
+    Set<String> findExistingNumberHashes(Collection<String> hashes);
+
+    @Query("SELECT c FROM Card c WHERE c.numberHash IS NULL AND c.id > :afterId ORDER BY c.id ASC")
+    List<Card> findMissingNumberHashAfter(Long afterId, Pageable pageable);
+
+    @Query("SELECT c FROM Card c WHERE c.expiryMonth IS NULL AND c.id > :afterId ORDER BY c.id ASC")
+    List<Card> findMissingExpiryMonthAfter(Long afterId, Pageable pageable);
+
+    /**
+     * Keyset page over idx_cards_expiry_month (expiry_month, id): the range starts right
+     * after the last (expiryMonth, id) seen and ends below month.
+     */
+    @Query("SELECT new com.project.bankrest.DTO.CardExpiryView(c.id, c.expiryMonth) FROM Card c " +
+            "WHERE c.expiryMonth < :month AND (c.expiryMonth, c.id) > (:afterMonth, :afterId) AND c.status <> :status " +
+            "ORDER BY c.expiryMonth ASC, c.id ASC")
+    List<CardExpiryView> findExpiringBeforeAfter(Integer month, CardStatus status, Integer afterMonth, Long afterId,
+                                                 Pageable pageable);
+
+    @Query("SELECT new com.project.bankrest.DTO.CardListVersion(COUNT(c), COALESCE(SUM(c.id), 0), COALESCE(SUM(c.version), 0)) " +
+            "FROM Card c WHERE c.user.id = :userId")
+    CardListVersion findListVersionByUserId(Long userId);
+
+    @Query("SELECT c FROM Card c WHERE c.id = :cardId AND c.user.id = :userId")
+    Optional<Card> findByIdAndUserId(Long cardId, Long userId);
+
+    @Query("SELECT new com.project.bankrest.DTO.CardBalanceView(c.balance, c.version) FROM Card c " +
+            "WHERE c.id = :cardId AND c.user.id = :userId")
+    Optional<CardBalanceView> findBalanceViewByIdAndUserId(Long cardId, Long userId);
+
+    @Query("SELECT new com.project.bankrest.DTO.CardOwnershipView(c.id, c.user.id, c.status) FROM Card c " +
+            "WHERE c.id > :afterId ORDER BY c.id ASC")
+    List<CardOwnershipView> findOwnershipAfter(Long afterId, Pageable pageable);
+
+    @Query("SELECT new com.project.bankrest.DTO.GroupCount(c.status, COUNT(c)) FROM Card c GROUP BY c.status")
+    List<GroupCount> countGroupByStatus();
+
+    @Query("SELECT new com.project.bankrest.DTO.UserCardStatusCount(c.user.id, c.status, COUNT(c)) FROM Card c " +
+            "WHERE c.user.id IN :userIds GROUP BY c.user.id, c.status")
+    List<UserCardStatusCount> countByUserIdInGroupByStatus(Collection<Long> userIds);
+
+    @Query("SELECT c.id FROM Card c WHERE c.user.id = :userId ORDER BY c.id ASC")
+    List<Long> findIdsByUserId(Long userId);
+
+    @Query("SELECT new com.project.bankrest.DTO.CardOwnershipView(c.id, c.user.id, c.status) FROM Card c " +
+            "WHERE c.user.id IN :userIds")
+    List<CardOwnershipView> findOwnershipByUserIdIn(Collection<Long> userIds);
+
+    @Query("SELECT new com.project.bankrest.DTO.CardOwnershipView(c.id, c.user.id, c.status) FROM Card c " +
+            "WHERE c.id IN :ids")
+    List<CardOwnershipView> findOwnershipByIdIn(Collection<Long> ids);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM Card c WHERE c.user.id IN :userIds")
+    int deleteByUserIdIn(Collection<Long> userIds);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Card c SET c.status = :status, c.version = c.version + 1 WHERE c.id IN :ids")
+    int updateStatusByIdIn(Collection<Long> ids, CardStatus status);
 }
@@ -0,0 +1,81 @@
+package com.project.bankrest.Repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.stereotype.Component;
+
+import java.sql.DatabaseMetaData;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Ids for rows inserted through plain JDBC, handed out the way Hibernate's pooled-lo
+ * optimizer does for the entities: one call to the sequence reserves the block from
+ * the returned value to the 49 after it, and what a caller does not use is kept for
+ * the next one. The sequences from 008-id-sequences step by BLOCK_SIZE, so these blocks
+ * never overlap with each other or with Hibernate's. Rows inserted without an id would
+ * take a whole block through the column default.
+ */
+@Component
+public class SequenceIdAllocator {
+
+    public static final int BLOCK_SIZE = 50;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Map<String, long[]> blocks = new HashMap<>();
+    // a lock rather than synchronized: the sequence call is JDBC I/O, and a virtual
+    // thread blocking on it inside a monitor would pin its carrier
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile Boolean postgres;
+
+    public SequenceIdAllocator(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public List<Long> allocate(String sequence, int count) {
+        lock.lock();
+        try {
+            List<Long> ids = new ArrayList<>(count);
+            // [next id, end of block (exclusive)]
+            long[] block = blocks.computeIfAbsent(sequence, name -> new long[2]);
+            while (ids.size() < count) {
+                if (block[0] == block[1]) {
+                    block[0] = nextValue(sequence);
+                    block[1] = block[0] + BLOCK_SIZE;
+                }
+                ids.add(block[0]++);
+            }
+            return ids;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private long nextValue(String sequence) {
+        String sql = isPostgres()
+                ? "SELECT nextval('" + sequence + "')"
+                : "SELECT NEXT VALUE FOR " + sequence;
+        Long value = jdbcTemplate.queryForObject(sql, Long.class);
+        if (value == null) {
+            throw new IllegalStateException("Sequence " + sequence + " returned no value");
+        }
+        return value;
+    }
+
+    private boolean isPostgres() {
+        if (postgres == null) {
+            try {
+                String product = JdbcUtils.extractDatabaseMetaData(jdbcTemplate.getDataSource(),
+                        DatabaseMetaData::getDatabaseProductName);
+                postgres = "PostgreSQL".equals(product);
+            } catch (MetaDataAccessException e) {
+                postgres = false;
+            }
+        }
+        return postgres;
+    }
+}
@@ -1,5 +1,6 @@
 package com.project.bankrest.Repository;
 
+import com.project.bankrest.DTO.GroupCount;
 import com.project.bankrest.Entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
@@ -8,25 +9,39 @@ import org.springframework.stereotype.Repository;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
-import jakarta.transaction.Transactional;
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 @Repository
-public interface UserRepository extends JpaRepository<User, Long> {
+public interface UserRepository extends JpaRepository<User, Long>, UserSearchRepository {
 
     Page<User> findByUsernameContainingIgnoreCaseOrNameContainingIgnoreCase(String username, String name, Pageable pageable);
 
     Optional<User> findByUsername(String username);
 
-    boolean existsByUsername(String username);
+    @Query("SELECT u.id FROM User u WHERE u.id IN :ids")
+    Set<Long> findExistingIds(Collection<Long> ids);
 
-    @Query("SELECT u FROM User u ORDER BY u.id DESC")
-    List<User> findAllOrderByIdAsc();
+    @Query("SELECT new com.project.bankrest.DTO.GroupCount(u.role, COUNT(u)) FROM User u GROUP BY u.role")
+    List<GroupCount> countGroupByRole();
 
-    @Modifying
-    @Transactional
-    @Query(value = "UPDATE users SET id = :newId WHERE id = :oldId", nativeQuery = true)
-    void updateUserId(long oldId, long newId);
+    @Query("SELECT u.username FROM User u WHERE u.username IN :usernames")
+    Set<String> findExistingUsernames(Collection<String> usernames);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE User u SET u.deleted = true, u.deletedAt = :deletedAt WHERE u.id = :id AND u.deleted = false")
+    int softDeleteById(Long id, Instant deletedAt);
+
+    // Native, because the entity's SQLRestriction would hide exactly these rows.
+    @Query(value = "SELECT id FROM users WHERE deleted = true AND deleted_at < :cutoff ORDER BY deleted_at, id LIMIT :limit",
+            nativeQuery = true)
+    List<Long> findDeletedIdsBefore(Instant cutoff, int limit);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "DELETE FROM users WHERE id IN (:ids) AND deleted = true", nativeQuery = true)
+    int purgeByIdIn(Collection<Long> ids);
 
 }
@@ -0,0 +1,15 @@
+package com.project.bankrest.Repository;
+
+import com.project.bankrest.DTO.UserSearchResult;
+
+import java.util.List;
+
+public interface UserSearchRepository {
+
+    /**
+     * Live users whose username or name contains term (already lower-cased), best
+     * matches first. Rows come in (rank desc, id asc) order, starting after the given
+     * position; pass Integer.MAX_VALUE and 0 for the first page.
+     */
+    List<UserSearchResult> searchRanked(String term, int afterRank, long afterId, int limit);
+}
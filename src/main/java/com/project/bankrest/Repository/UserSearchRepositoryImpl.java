@@ -0,0 +1,78 @@
+package com.project.bankrest.Repository;
+
+import com.project.bankrest.DTO.UserSearchResult;
+import com.project.bankrest.Entity.Role;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+
+import javax.sql.DataSource;
+import java.sql.DatabaseMetaData;
+import java.util.List;
+
+/**
+ * On PostgreSQL the filter is served by the pg_trgm GIN indexes on lower(username)
+ * and lower(name) from changelog 011, and rows are ranked by trigram similarity.
+ * Other databases (H2 in tests) get the same filter without the indexes and a
+ * coarser exact / prefix / substring rank.
+ */
+class UserSearchRepositoryImpl implements UserSearchRepository {
+
+    private static final String TRIGRAM_RANK =
+            "CAST(GREATEST(similarity(lower(u.username), :term), similarity(lower(u.name), :term)) * 1000 AS INTEGER)";
+
+    private static final String PLAIN_RANK = """
+            CASE WHEN lower(u.username) = :term OR lower(u.name) = :term THEN 1000
+                 WHEN lower(u.username) LIKE :prefix ESCAPE '\\' OR lower(u.name) LIKE :prefix ESCAPE '\\' THEN 500
+                 ELSE 100 END""";
+
+    private static final String SEARCH = """
+            SELECT id, username, name, role, search_rank FROM (
+                SELECT u.id, u.username, u.name, u.role, %s AS search_rank
+                FROM users u
+                WHERE u.deleted = false
+                  AND (lower(u.username) LIKE :pattern ESCAPE '\\' OR lower(u.name) LIKE :pattern ESCAPE '\\')
+            ) ranked
+            WHERE search_rank < :afterRank OR (search_rank = :afterRank AND id > :afterId)
+            ORDER BY search_rank DESC, id ASC
+            LIMIT :limit""";
+
+    private static final RowMapper<UserSearchResult> ROW_MAPPER = (rs, rowNum) -> new UserSearchResult(
+            rs.getLong("id"),
+            rs.getString("username"),
+            rs.getString("name"),
+            rs.getString("role") == null ? null : Role.valueOf(rs.getString("role")),
+            rs.getInt("search_rank"));
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final String searchSql;
+
+    UserSearchRepositoryImpl(NamedParameterJdbcTemplate jdbcTemplate, DataSource dataSource) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.searchSql = SEARCH.formatted(isPostgres(dataSource) ? TRIGRAM_RANK : PLAIN_RANK);
+    }
+
+    @Override
+    public List<UserSearchResult> searchRanked(String term, int afterRank, long afterId, int limit) {
+        String escaped = term.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("term", term)
+                .addValue("prefix", escaped + "%")
+                .addValue("pattern", "%" + escaped + "%")
+                .addValue("afterRank", afterRank)
+                .addValue("afterId", afterId)
+                .addValue("limit", limit);
+        return jdbcTemplate.query(searchSql, params, ROW_MAPPER);
+    }
+
+    private static boolean isPostgres(DataSource dataSource) {
+        try {
+            String product = JdbcUtils.extractDatabaseMetaData(dataSource, DatabaseMetaData::getDatabaseProductName);
+            return "PostgreSQL".equals(product);
+        } catch (MetaDataAccessException e) {
+            return false;
+        }
+    }
+}
@@ -1,29 +1,70 @@
 package com.project.bankrest.Security;
 
+import com.project.bankrest.Configuration.ServerTiming;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
 import jakarta.annotation.PostConstruct;
 import lombok.SneakyThrows;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.Cipher;
+import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
 import java.util.Base64;
+import java.util.HexFormat;
 
 @Component
 public class EncryptionUtil {
 
     private static final String ALGORITHM = "AES";
+    private static final String HASH_ALGORITHM = "HmacSHA256";
     private static final String SECRET = "12345678901234567890123456789012";
+    private static final String HASH_KEY_LABEL = "number-hash";
     private SecretKeySpec secretKey;
+    private SecretKeySpec hashKey;
+    // no-op until a registry is bound, so the class still works when built by hand
+    private Timer encryptTimer = Timer.builder("bankrest.crypto").tag("operation", "encrypt").register(Metrics.globalRegistry);
+    private Timer decryptTimer = Timer.builder("bankrest.crypto").tag("operation", "decrypt").register(Metrics.globalRegistry);
 
+    /**
+     * The hash key is derived from the secret under its own label rather than being the
+     * AES key itself, so the two uses never share key material.
+     */
     @PostConstruct
+    @SneakyThrows
     public void init() {
         secretKey = new SecretKeySpec(SECRET.getBytes(), ALGORITHM);
+        Mac mac = Mac.getInstance(HASH_ALGORITHM);
+        mac.init(new SecretKeySpec(SECRET.getBytes(), HASH_ALGORITHM));
+        hashKey = new SecretKeySpec(mac.doFinal(HASH_KEY_LABEL.getBytes()), HASH_ALGORITHM);
+    }
+
+    @Autowired(required = false)
+    public void bindMetrics(MeterRegistry registry) {
+        encryptTimer = Timer.builder("bankrest.crypto").tag("operation", "encrypt").register(registry);
+        decryptTimer = Timer.builder("bankrest.crypto").tag("operation", "decrypt").register(registry);
     }
 
-    @SneakyThrows
     public String encrypt(String str) {
         if (str == null) return null;
+        long start = ServerTiming.start();
+        String result = encryptTimer.record(() -> doEncrypt(str));
+        ServerTiming.stop("crypto", start);
+        return result;
+    }
 
+    public String decrypt(String encrypted) {
+        if (encrypted == null) return null;
+        long start = ServerTiming.start();
+        String result = decryptTimer.record(() -> doDecrypt(encrypted));
+        ServerTiming.stop("crypto", start);
+        return result;
+    }
+
+    @SneakyThrows
+    private String doEncrypt(String str) {
         Cipher cipher = Cipher.getInstance("AES");
         cipher.init(Cipher.ENCRYPT_MODE, secretKey);
 
@@ -31,12 +72,24 @@ public class EncryptionUtil {
     }
 
     @SneakyThrows
-    public String decrypt(String encrypted) {
-        if (encrypted == null) return null;
-
+    private String doDecrypt(String encrypted) {
         Cipher cipher = Cipher.getInstance("AES");
         cipher.init(Cipher.DECRYPT_MODE, secretKey);
 
         return new String(cipher.doFinal(Base64.getDecoder().decode(encrypted)));
     }
+
+    /**
+     * Keyed, deterministic hash of a sensitive value, used as a lookup and uniqueness
+     * index for columns that are stored encrypted.
+     */
+    @SneakyThrows
+    public String hash(String str) {
+        if (str == null) return null;
+
+        Mac mac = Mac.getInstance(HASH_ALGORITHM);
+        mac.init(hashKey);
+
+        return HexFormat.of().formatHex(mac.doFinal(str.getBytes()));
+    }
 }
@@ -1,4 +1,7 @@
 package com.project.bankrest.Security;
+import com.project.bankrest.Configuration.ServerTiming;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -21,15 +24,26 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     @Autowired
     private UserDetailsService userDetailsService;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
             throws ServletException, IOException {
         String authHeader = request.getHeader("Authorization");
         if (authHeader != null && authHeader.startsWith("Bearer ")) {
             String token = authHeader.substring(7);
-            if (jwtUtils.validateJwtToken(token)) {
-                String username = jwtUtils.getUsernameFromJwtToken(token);
+            long jwtStart = ServerTiming.start();
+            Timer.Sample sample = Timer.start(meterRegistry);
+            String username = jwtUtils.parseUsername(token);
+            sample.stop(Timer.builder("bankrest.auth.jwt.verify")
+                    .tag("outcome", username != null ? "valid" : "invalid")
+                    .register(meterRegistry));
+            ServerTiming.stop("jwt", jwtStart);
+            if (username != null) {
+                long userStart = ServerTiming.start();
                 UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+                ServerTiming.stop("user", userStart);
 
                 UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
                         userDetails, null, userDetails.getAuthorities());
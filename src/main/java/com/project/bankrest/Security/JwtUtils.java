@@ -16,11 +16,16 @@ public class JwtUtils {
     private final String base64Secret = "MIGfMA0GCSqGSIb3DQEBAQUAA4GNADCBiQKBgQDkPiSh6wT1GyyPoxhTny7Z8DvXi+RbVj+N+UM0Zqg/9nrp0xYwUzQXmM1RfquX1WLpZb6Bq+v1g53vNfJyCkp7vD9OL1s+1vZkpSvyHKRJfJlpguF7Kw+1KX+bzHcXUliJgQScf/rl2zWgiS7q+F8Z5nVgLCw54zFqy75QIDAQAB";
 
     private final SecretKey key;
+    // immutable and thread-safe, so built once instead of per token
+    private final JwtParser parser;
     private final long jwtExpirationMs = 86400000;
 
     public JwtUtils() {
         byte[] keyBytes = Base64.getDecoder().decode(base64Secret);
         this.key = Keys.hmacShaKeyFor(keyBytes);
+        this.parser = Jwts.parserBuilder()
+                .setSigningKey(key)
+                .build();
     }
 
     public String generateJwtToken(UserDetails userDetails) {
@@ -49,23 +54,25 @@ public class JwtUtils {
     }
 
     public String getUsernameFromJwtToken(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(key)
-                .build()
+        return parser
                 .parseClaimsJws(token)
                 .getBody()
                 .getSubject();
     }
 
     public boolean validateJwtToken(String token) {
+        return parseUsername(token) != null;
+    }
+
+    /**
+     * Verifies the token and returns its subject in one parse, or null when the token
+     * is invalid or expired.
+     */
+    public String parseUsername(String token) {
         try {
-            Jwts.parserBuilder()
-                    .setSigningKey(key)
-                    .build()
-                    .parseClaimsJws(token);
-            return true;
-        } catch (JwtException e) {
-            return false;
+            return parser.parseClaimsJws(token).getBody().getSubject();
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
         }
     }
 }
@@ -0,0 +1,45 @@
+package com.project.bankrest.Security;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+/**
+ * Times every hash and check of the wrapped encoder under bankrest.auth.password,
+ * tagged with the operation and, for checks, whether the password matched.
+ */
+public class TimedPasswordEncoder implements PasswordEncoder {
+
+    private static final String METRIC = "bankrest.auth.password";
+
+    private final PasswordEncoder delegate;
+    private final MeterRegistry registry;
+    private final Timer encodeTimer;
+
+    public TimedPasswordEncoder(PasswordEncoder delegate, MeterRegistry registry) {
+        this.delegate = delegate;
+        this.registry = registry;
+        this.encodeTimer = Timer.builder(METRIC).tag("operation", "encode").tag("outcome", "none").register(registry);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return encodeTimer.record(() -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        Timer.Sample sample = Timer.start(registry);
+        boolean matches = delegate.matches(rawPassword, encodedPassword);
+        sample.stop(Timer.builder(METRIC)
+                .tag("operation", "matches")
+                .tag("outcome", matches ? "match" : "mismatch")
+                .register(registry));
+        return matches;
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+}
@@ -0,0 +1,163 @@
+package com.project.bankrest.Services;
+
+import com.project.bankrest.DTO.AdminStats;
+import com.project.bankrest.DTO.GroupCount;
+import com.project.bankrest.Entity.CardStatus;
+import com.project.bankrest.Entity.Role;
+import com.project.bankrest.Event.CardBulkCreatedEvent;
+import com.project.bankrest.Event.CardEvent;
+import com.project.bankrest.Event.CardStatusBulkEvent;
+import com.project.bankrest.Event.UserEvent;
+import com.project.bankrest.Repository.CardRepository;
+import com.project.bankrest.Repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Dashboard totals kept in memory, so reading them costs no query. Counters move
+ * with after-commit card and user events. Changes whose previous value the event
+ * does not carry (bulk status updates, user deletion, purges) mark the counters
+ * stale instead, and the next short-interval check recounts them with two grouped
+ * queries. A full recount also runs on startup and periodically, which bounds any
+ * drift, including changes made by other instances.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AdminStatsService {
+
+    private static final Role[] ROLES = Role.values();
+    private static final CardStatus[] STATUSES = CardStatus.values();
+
+    private final UserRepository userRepository;
+    private final CardRepository cardRepository;
+
+    private final AtomicLongArray usersByRole = new AtomicLongArray(ROLES.length);
+    private final AtomicLongArray cardsByStatus = new AtomicLongArray(STATUSES.length);
+    private final AtomicBoolean stale = new AtomicBoolean();
+    private volatile Instant reconciledAt;
+
+    public AdminStats getStats() {
+        Map<Role, Long> roles = new EnumMap<>(Role.class);
+        long totalUsers = 0;
+        for (Role role : ROLES) {
+            long count = usersByRole.get(role.ordinal());
+            roles.put(role, count);
+            totalUsers += count;
+        }
+        Map<CardStatus, Long> statuses = new EnumMap<>(CardStatus.class);
+        long totalCards = 0;
+        for (CardStatus status : STATUSES) {
+            long count = cardsByStatus.get(status.ordinal());
+            statuses.put(status, count);
+            totalCards += count;
+        }
+        return new AdminStats(totalUsers, roles, totalCards, statuses,
+                statuses.get(CardStatus.BLOCK_REQUESTED), reconciledAt);
+    }
+
+    public boolean isStale() {
+        return stale.get();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${bankrest.admin.stats.reconcile-interval:PT10M}",
+            initialDelayString = "${bankrest.admin.stats.reconcile-interval:PT10M}")
+    public void reconcile() {
+        stale.set(false);
+        long[] roles = new long[ROLES.length];
+        for (GroupCount row : userRepository.countGroupByRole()) {
+            roles[((Role) row.getKey()).ordinal()] = row.getCount();
+        }
+        long[] statuses = new long[STATUSES.length];
+        for (GroupCount row : cardRepository.countGroupByStatus()) {
+            statuses[((CardStatus) row.getKey()).ordinal()] = row.getCount();
+        }
+        for (int i = 0; i < roles.length; i++) {
+            usersByRole.set(i, roles[i]);
+        }
+        for (int i = 0; i < statuses.length; i++) {
+            cardsByStatus.set(i, statuses[i]);
+        }
+        reconciledAt = Instant.now();
+    }
+
+    @Scheduled(fixedDelayString = "${bankrest.admin.stats.stale-check-interval:PT5S}")
+    public void reconcileIfStale() {
+        if (stale.get()) {
+            reconcile();
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onCardEvent(CardEvent event) {
+        switch (event.getType()) {
+            case CREATED -> cardsByStatus.incrementAndGet(event.getStatus().ordinal());
+            case UPDATED -> {
+                if (event.getPreviousStatus() == null) {
+                    stale.set(true);
+                } else if (event.getPreviousStatus() != event.getStatus()) {
+                    cardsByStatus.decrementAndGet(event.getPreviousStatus().ordinal());
+                    cardsByStatus.incrementAndGet(event.getStatus().ordinal());
+                }
+            }
+            case DELETED -> {
+                if (event.getPreviousStatus() == null) {
+                    stale.set(true);
+                } else {
+                    cardsByStatus.decrementAndGet(event.getPreviousStatus().ordinal());
+                }
+            }
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onCardBulkCreatedEvent(CardBulkCreatedEvent event) {
+        cardsByStatus.addAndGet(event.getStatus().ordinal(), event.getCardIds().size());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onCardStatusBulkEvent(CardStatusBulkEvent event) {
+        stale.set(true);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onUserEvent(UserEvent event) {
+        switch (event.getType()) {
+            case CREATED -> {
+                if (event.getRole() == null) {
+                    stale.set(true);
+                } else {
+                    usersByRole.incrementAndGet(event.getRole().ordinal());
+                }
+            }
+            case UPDATED -> {
+                if (event.getRole() == null || event.getPreviousRole() == null) {
+                    stale.set(true);
+                } else if (event.getRole() != event.getPreviousRole()) {
+                    usersByRole.decrementAndGet(event.getPreviousRole().ordinal());
+                    usersByRole.incrementAndGet(event.getRole().ordinal());
+                }
+            }
+            case DELETED -> {
+                if (event.getRole() == null) {
+                    stale.set(true);
+                } else {
+                    usersByRole.decrementAndGet(event.getRole().ordinal());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.project.bankrest.Services;
+
+import com.project.bankrest.Entity.Card;
+import com.project.bankrest.Repository.CardRepository;
+import com.project.bankrest.Security.EncryptionUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Fills plaintext columns derived from encrypted card fields for rows written before
+ * those columns existed. Liquibase cannot decrypt, so the migration only adds the
+ * columns and this job backfills them in keyset-ordered chunks, one transaction per
+ * chunk, once the application is up.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CardBackfillJob {
+
+    private final CardRepository cardRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final EncryptionUtil encryptionUtil;
+
+    @Value("${bankrest.cards.backfill.batch-size:500}")
+    private int batchSize = 500;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        long filled = backfillExpiryMonth();
+        if (filled > 0) {
+            log.info("Backfilled expiry_month for {} cards", filled);
+        }
+        long hashed = backfillNumberHash();
+        if (hashed > 0) {
+            log.info("Backfilled number_hash for {} cards", hashed);
+        }
+    }
+
+    public long backfillExpiryMonth() {
+        long filled = 0;
+        long afterId = 0;
+        while (true) {
+            long from = afterId;
+            List<Card> chunk = transactionTemplate.execute(status -> {
+                List<Card> cards = cardRepository.findMissingExpiryMonthAfter(from, PageRequest.of(0, batchSize));
+                cards.forEach(Card::syncExpiryMonth);
+                return cards;
+            });
+            if (chunk == null || chunk.isEmpty()) {
+                return filled;
+            }
+            filled += chunk.stream().filter(card -> card.getExpiryMonth() != null).count();
+            afterId = chunk.get(chunk.size() - 1).getId();
+        }
+    }
+
+    /**
+     * Cards written before numbers were checked for uniqueness can share a number. The
+     * first card keeps the hash; the others are logged and left without one, since the
+     * unique index on number_hash would reject the whole chunk, and need to be reissued.
+     */
+    public long backfillNumberHash() {
+        long filled = 0;
+        long afterId = 0;
+        while (true) {
+            long from = afterId;
+            List<Card> chunk = transactionTemplate.execute(status -> {
+                List<Card> cards = cardRepository.findMissingNumberHashAfter(from, PageRequest.of(0, batchSize));
+                Map<String, Card> byHash = new LinkedHashMap<>();
+                for (Card card : cards) {
+                    String hash = encryptionUtil.hash(card.getNumber());
+                    Card first = byHash.putIfAbsent(hash, card);
+                    if (first != null) {
+                        log.warn("Card {} has the same number as card {}; number_hash left empty", card.getId(), first.getId());
+                    }
+                }
+                Set<String> taken = byHash.isEmpty() ? Set.of() : cardRepository.findExistingNumberHashes(byHash.keySet());
+                byHash.forEach((hash, card) -> {
+                    if (taken.contains(hash)) {
+                        log.warn("Card {} has the same number as an already hashed card; number_hash left empty", card.getId());
+                    } else {
+                        card.setNumberHash(hash);
+                    }
+                });
+                return cards;
+            });
+            if (chunk == null || chunk.isEmpty()) {
+                return filled;
+            }
+            filled += chunk.stream().filter(card -> card.getNumberHash() != null).count();
+            afterId = chunk.get(chunk.size() - 1).getId();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.project.bankrest.Services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.project.bankrest.DTO.BalanceCacheStats;
+import com.project.bankrest.DTO.CardBalanceView;
+import com.project.bankrest.Event.CardEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+
+/**
+ * Bounded cache of decrypted card balances, keyed by card id. Reads fill it, and
+ * CardEvents overwrite or drop entries once their transaction has committed.
+ *
+ * Every entry carries the card version it was read or written at, and an entry only
+ * ever replaces one with a lower version. A read that raced with a transfer therefore
+ * cannot put back the balance the transfer replaced, and a deleted card leaves a
+ * tombstone that outranks any read still in flight.
+ */
+@Component
+public class CardBalanceCache {
+
+    /**
+     * Rough per-entry cost: the Caffeine node, the Long key, the Entry and its Long
+     * owner id and BigDecimal balance. Used only for the reported footprint.
+     */
+    static final long ESTIMATED_ENTRY_BYTES = 160;
+
+    private record Entry(Long ownerId, BigDecimal balance, long version) {
+        boolean isTombstone() {
+            return balance == null;
+        }
+    }
+
+    private final Cache<Long, Entry> cache;
+    private final long maxSize;
+
+    public CardBalanceCache(
+            @Value("${bankrest.cards.balance-cache.max-size:100000}") long maxSize,
+            @Value("${bankrest.cards.balance-cache.ttl:PT10M}") Duration ttl) {
+        this.maxSize = maxSize;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Cached balance of the card, with the version it belongs to, if the card belongs
+     * to the user, otherwise null; callers then go to the database, which also decides
+     * between not found and forbidden.
+     */
+    public CardBalanceView get(Long cardId, Long userId) {
+        Entry entry = cache.getIfPresent(cardId);
+        if (entry == null || entry.isTombstone() || !entry.ownerId().equals(userId)) {
+            return null;
+        }
+        return new CardBalanceView(entry.balance(), entry.version());
+    }
+
+    public void put(Long cardId, Long userId, BigDecimal balance, long version) {
+        store(cardId, new Entry(userId, balance, version));
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onCardEvent(CardEvent event) {
+        if (event.getType() == CardEvent.Type.DELETED) {
+            store(event.getCardId(), new Entry(null, null, Long.MAX_VALUE));
+        } else {
+            store(event.getCardId(), new Entry(event.getUserId(), event.getBalance(), event.getVersion()));
+        }
+    }
+
+    private void store(Long cardId, Entry entry) {
+        cache.asMap().merge(cardId, entry, (current, candidate) ->
+                candidate.version() >= current.version() ? candidate : current);
+    }
+
+    public BalanceCacheStats getStats() {
+        CacheStats stats = cache.stats();
+        long size = cache.estimatedSize();
+        return new BalanceCacheStats(size, maxSize, stats.hitCount(), stats.missCount(), stats.hitRate(),
+                stats.evictionCount(), size * ESTIMATED_ENTRY_BYTES);
+    }
+}
@@ -0,0 +1,132 @@
+package com.project.bankrest.Services;
+
+import com.project.bankrest.DTO.BulkCreateCardsRequest;
+import com.project.bankrest.DTO.BulkCreateCardsResponse;
+import com.project.bankrest.Entity.Card;
+import com.project.bankrest.Entity.CardStatus;
+import com.project.bankrest.Event.CardBulkCreatedEvent;
+import com.project.bankrest.Repository.SequenceIdAllocator;
+import com.project.bankrest.Repository.UserRepository;
+import com.project.bankrest.Security.EncryptionUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * Issues many cards in one request. Rows go straight to the table through JDBC
+ * batches instead of one persist and INSERT round trip per card; the encryption the
+ * entity converters would do is done here, in parallel, per chunk. The whole
+ * issuance is one transaction, so a failed request leaves nothing behind and can be
+ * retried as is. Ids come from cards_seq in blocks of 50, as Hibernate takes them,
+ * and each batch is announced with a CardBulkCreatedEvent.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CardBulkIssuer {
+
+    private static final String INSERT_SQL = """
+            INSERT INTO cards (id, user_id, card_number, number_hash, date, expiry_month, status, balance, cvv)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)
+            """;
+    private static final int USER_CHECK_CHUNK_SIZE = 1000;
+
+    private final UserRepository userRepository;
+    private final CardNumberIssuer cardNumberIssuer;
+    private final EncryptionUtil encryptionUtil;
+    private final JdbcTemplate jdbcTemplate;
+    private final SequenceIdAllocator idAllocator;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${bankrest.cards.bulk.batch-size:1000}")
+    private int batchSize = 1000;
+
+    @Value("${bankrest.cards.bulk.max-cards:100000}")
+    private int maxCards = 100_000;
+
+    @Transactional
+    public BulkCreateCardsResponse issue(BulkCreateCardsRequest request) {
+        if (request.getUserIds() == null || request.getUserIds().isEmpty()) {
+            throw new IllegalArgumentException("userIds must not be empty");
+        }
+        int perUser = request.getCardsPerUser() != null ? request.getCardsPerUser() : 1;
+        if (perUser < 1) {
+            throw new IllegalArgumentException("cardsPerUser must be positive");
+        }
+        Set<Long> userIds = new LinkedHashSet<>(request.getUserIds());
+        long requested = (long) userIds.size() * perUser;
+        if (requested > maxCards) {
+            throw new IllegalArgumentException("At most " + maxCards + " cards can be issued per request");
+        }
+        BigDecimal balance = request.getBalance() != null ? new BigDecimal(request.getBalance()) : BigDecimal.ZERO;
+
+        Set<Long> existing = findExistingUserIds(userIds);
+        List<Long> unknown = userIds.stream().filter(id -> !existing.contains(id)).toList();
+        List<Long> owners = new ArrayList<>(existing.size() * perUser);
+        for (Long userId : userIds) {
+            if (existing.contains(userId)) {
+                for (int i = 0; i < perUser; i++) {
+                    owners.add(userId);
+                }
+            }
+        }
+
+        // Every card in the request shares these, and AES/ECB is deterministic, so
+        // they are encrypted once rather than per row.
+        String expirationDate = request.getExpirationDate() != null
+                ? request.getExpirationDate()
+                : cardNumberIssuer.defaultExpirationDate();
+        YearMonth expiry = Card.parseExpiry(expirationDate);
+        Integer expiryMonth = expiry == null ? null : expiry.getYear() * 100 + expiry.getMonthValue();
+        String encryptedDate = encryptionUtil.encrypt(expirationDate);
+        String encryptedBalance = encryptionUtil.encrypt(balance.toPlainString());
+        CardStatus status = request.getStatus() != null ? request.getStatus() : CardStatus.ACTIVE;
+
+        for (int from = 0; from < owners.size(); from += batchSize) {
+            List<Long> chunk = owners.subList(from, Math.min(from + batchSize, owners.size()));
+            List<String> numbers = cardNumberIssuer.nextNumbers(chunk.size());
+            List<Long> ids = idAllocator.allocate("cards_seq", chunk.size());
+            List<Object[]> rows = IntStream.range(0, chunk.size())
+                    .parallel()
+                    .mapToObj(i -> new Object[]{
+                            ids.get(i),
+                            chunk.get(i),
+                            encryptionUtil.encrypt(numbers.get(i)),
+                            cardNumberIssuer.numberHash(numbers.get(i)),
+                            encryptedDate,
+                            expiryMonth,
+                            status.getCode(),
+                            encryptedBalance,
+                            encryptionUtil.encrypt(cardNumberIssuer.nextCvv())
+                    })
+                    .toList();
+            jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+            eventPublisher.publishEvent(new CardBulkCreatedEvent(ids, List.copyOf(chunk), status));
+        }
+
+        log.info("Bulk issued {} cards for {} users", owners.size(), existing.size());
+        return new BulkCreateCardsResponse((int) requested, owners.size(), unknown);
+    }
+
+    private Set<Long> findExistingUserIds(Set<Long> userIds) {
+        List<Long> ids = new ArrayList<>(userIds);
+        Set<Long> existing = new HashSet<>();
+        for (int from = 0; from < ids.size(); from += USER_CHECK_CHUNK_SIZE) {
+            existing.addAll(userRepository.findExistingIds(ids.subList(from, Math.min(from + USER_CHECK_CHUNK_SIZE, ids.size()))));
+        }
+        return existing;
+    }
+}
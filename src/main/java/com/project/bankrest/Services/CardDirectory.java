@@ -0,0 +1,430 @@
+package com.project.bankrest.Services;
+
+import com.project.bankrest.DTO.CardOwnershipView;
+import com.project.bankrest.Entity.CardStatus;
+import com.project.bankrest.Event.CardEvent;
+import com.project.bankrest.Event.CardStatusBulkEvent;
+import com.project.bankrest.Repository.CardRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Memory-resident map of card id to owner id and status, for answering ownership and
+ * status checks without a query. Entries live in three parallel arrays forming one
+ * open-addressed, linearly probed table (17 bytes per slot, at most 75% full), so
+ * nothing is boxed. Readers go through StampedLock optimistic reads; writers take the
+ * write lock.
+ *
+ * Enabled with bankrest.cards.directory.enabled. It is filled in id chunks once the
+ * application is up and kept current from after-commit card events. Events only
+ * cover this instance's own writes, so the table is also rebuilt from the database
+ * every reconcile-interval: changes made by other instances or by plain JDBC are
+ * picked up within one interval. A rebuild fills a second table while the current one
+ * keeps answering, then swaps them. Cards it has not seen, such as those written by
+ * the bulk issuer since the last rebuild, are reported as unknown; callers treat only
+ * a known answer as authoritative and otherwise ask the database.
+ */
+@Slf4j
+@Component
+public class CardDirectory {
+
+    public static final long UNKNOWN_OWNER = 0;
+
+    private static final int LOAD_CHUNK_SIZE = 10_000;
+    private static final byte REMOVED = 0;
+    private static final long EMPTY = 0;
+
+    private final CardRepository cardRepository;
+    private final boolean enabled;
+    private final StampedLock lock = new StampedLock();
+    private final ReentrantLock loadLock = new ReentrantLock();
+
+    private volatile Table table;
+    // the table a load is filling, or null; guarded by lock
+    private Table loading;
+    private volatile boolean ready;
+
+    public CardDirectory(
+            CardRepository cardRepository,
+            @Value("${bankrest.cards.directory.enabled:false}") boolean enabled,
+            @Value("${bankrest.cards.directory.initial-capacity:1024}") int initialCapacity) {
+        this.cardRepository = cardRepository;
+        this.enabled = enabled;
+        int capacity = Integer.highestOneBit(Math.max(initialCapacity, 16) - 1) << 1;
+        this.table = new Table(capacity);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Owner of the card, or UNKNOWN_OWNER when the directory is disabled, still
+     * loading or has no entry for it.
+     */
+    public long ownerOf(long cardId) {
+        long entry = lookup(cardId);
+        return entry == EMPTY ? UNKNOWN_OWNER : entry >>> 8;
+    }
+
+    /**
+     * Status of the card, or null when it is not known.
+     */
+    public CardStatus statusOf(long cardId) {
+        long entry = lookup(cardId);
+        return entry == EMPTY ? null : CardStatus.fromCode((short) (entry & 0xFF));
+    }
+
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return table.size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public long getFootprintBytes() {
+        long stamp = lock.readLock();
+        try {
+            return (long) table.keys.length * (Long.BYTES + Long.BYTES + Byte.BYTES);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        rebuild();
+    }
+
+    @Scheduled(initialDelayString = "${bankrest.cards.directory.reconcile-interval:PT15M}",
+            fixedDelayString = "${bankrest.cards.directory.reconcile-interval:PT15M}")
+    public void reconcile() {
+        rebuild();
+    }
+
+    /**
+     * Reads every card into a new table and swaps it in. Events arriving meanwhile go
+     * to both tables, and in the new one they are newer than any chunk, so they win.
+     * A rebuild still running when the next one is due makes that one a no-op.
+     */
+    private void rebuild() {
+        if (!enabled || !loadLock.tryLock()) {
+            return;
+        }
+        try {
+            Table fresh = new Table(table.keys.length);
+            long stamp = lock.writeLock();
+            try {
+                loading = fresh;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+
+            try {
+                long afterId = 0;
+                List<CardOwnershipView> chunk;
+                do {
+                    chunk = cardRepository.findOwnershipAfter(afterId, PageRequest.of(0, LOAD_CHUNK_SIZE));
+                    stamp = lock.writeLock();
+                    try {
+                        for (CardOwnershipView card : chunk) {
+                            fresh.fill(card.getId(), card.getUserId(), (byte) card.getStatus().getCode());
+                        }
+                    } finally {
+                        lock.unlockWrite(stamp);
+                    }
+                    if (!chunk.isEmpty()) {
+                        afterId = chunk.get(chunk.size() - 1).getId();
+                    }
+                } while (chunk.size() == LOAD_CHUNK_SIZE);
+
+                stamp = lock.writeLock();
+                try {
+                    fresh.compact();
+                    table = fresh;
+                    ready = true;
+                } finally {
+                    lock.unlockWrite(stamp);
+                }
+            } finally {
+                stamp = lock.writeLock();
+                try {
+                    loading = null;
+                } finally {
+                    lock.unlockWrite(stamp);
+                }
+            }
+        } finally {
+            loadLock.unlock();
+        }
+        log.info("Card directory loaded {} cards ({} bytes)", size(), getFootprintBytes());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onCardEvent(CardEvent event) {
+        if (!enabled) {
+            return;
+        }
+        long stamp = lock.writeLock();
+        try {
+            if (event.getType() == CardEvent.Type.DELETED) {
+                table.remove(event.getCardId());
+                if (loading != null) {
+                    loading.markRemoved(event.getCardId());
+                }
+            } else {
+                byte status = (byte) event.getStatus().getCode();
+                table.put(event.getCardId(), event.getUserId(), status);
+                if (loading != null) {
+                    loading.put(event.getCardId(), event.getUserId(), status);
+                }
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onCardStatusBulkEvent(CardStatusBulkEvent event) {
+        if (!enabled) {
+            return;
+        }
+        byte code = (byte) event.getStatus().getCode();
+        long stamp = lock.writeLock();
+        try {
+            for (Long cardId : event.getCardIds()) {
+                table.updateStatus(cardId, code);
+                if (loading != null) {
+                    loading.markStatus(cardId, code);
+                }
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Owner id shifted left by eight bits with the status code in the low byte, or EMPTY.
+     */
+    private long lookup(long cardId) {
+        if (!ready) {
+            return EMPTY;
+        }
+        long stamp = lock.tryOptimisticRead();
+        long entry = table.probe(cardId);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                entry = table.probe(cardId);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return entry;
+    }
+
+    private static int home(long cardId, int mask) {
+        long h = cardId * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    /**
+     * The arrays themselves. Only the table being filled by a rebuild holds entries
+     * marked REMOVED or placeholders with UNKNOWN_OWNER; compact() drops them before it
+     * goes live.
+     */
+    private static final class Table {
+        private long[] keys;
+        private long[] owners;
+        private byte[] statuses;
+        private int size;
+
+        private Table(int capacity) {
+            allocate(capacity);
+        }
+
+        /**
+         * Safe to run without the lock: it works on one consistent set of arrays or
+         * gives up, and never loops more than once around the table.
+         */
+        long probe(long cardId) {
+            long[] k = keys;
+            long[] o = owners;
+            byte[] s = statuses;
+            if (k.length != o.length || k.length != s.length) {
+                return EMPTY;
+            }
+            int mask = k.length - 1;
+            int slot = home(cardId, mask);
+            for (int i = 0; i < k.length; i++) {
+                long key = k[slot];
+                if (key == EMPTY) {
+                    return EMPTY;
+                }
+                if (key == cardId) {
+                    byte status = s[slot];
+                    return status == REMOVED || o[slot] == UNKNOWN_OWNER ? EMPTY : (o[slot] << 8) | status;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return EMPTY;
+        }
+
+        void put(long cardId, long ownerId, byte status) {
+            int slot = indexOf(cardId);
+            if (slot >= 0) {
+                owners[slot] = ownerId;
+                statuses[slot] = status;
+            } else {
+                insert(cardId, ownerId, status);
+            }
+        }
+
+        void remove(long cardId) {
+            int slot = indexOf(cardId);
+            if (slot >= 0) {
+                removeAt(slot);
+            }
+        }
+
+        void updateStatus(long cardId, byte status) {
+            int slot = indexOf(cardId);
+            if (slot >= 0 && statuses[slot] != REMOVED) {
+                statuses[slot] = status;
+            }
+        }
+
+        /**
+         * Keeps the key so a chunk read before the delete cannot bring the card back.
+         */
+        void markRemoved(long cardId) {
+            int slot = indexOf(cardId);
+            if (slot >= 0) {
+                statuses[slot] = REMOVED;
+            } else {
+                insert(cardId, UNKNOWN_OWNER, REMOVED);
+            }
+        }
+
+        /**
+         * Like markRemoved: a placeholder with the new status, so a chunk read before
+         * the update cannot bring back the old one.
+         */
+        void markStatus(long cardId, byte status) {
+            int slot = indexOf(cardId);
+            if (slot < 0) {
+                insert(cardId, UNKNOWN_OWNER, status);
+            } else if (statuses[slot] != REMOVED) {
+                statuses[slot] = status;
+            }
+        }
+
+        /**
+         * Adds a card read by a rebuild. Entries events put there first are newer and
+         * stay; a placeholder only takes the owner.
+         */
+        void fill(long cardId, long ownerId, byte status) {
+            int slot = indexOf(cardId);
+            if (slot < 0) {
+                insert(cardId, ownerId, status);
+            } else if (owners[slot] == UNKNOWN_OWNER && statuses[slot] != REMOVED) {
+                owners[slot] = ownerId;
+            }
+        }
+
+        /**
+         * Drops entries marked removed and placeholders no chunk supplied an owner for.
+         */
+        void compact() {
+            rehash(keys.length, true);
+        }
+
+        private int indexOf(long cardId) {
+            int mask = keys.length - 1;
+            int slot = home(cardId, mask);
+            while (keys[slot] != EMPTY) {
+                if (keys[slot] == cardId) {
+                    return slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return -1;
+        }
+
+        private void insert(long cardId, long ownerId, byte status) {
+            if ((size + 1) * 4L > keys.length * 3L) {
+                rehash(keys.length * 2, false);
+            }
+            int mask = keys.length - 1;
+            int slot = home(cardId, mask);
+            while (keys[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = cardId;
+            owners[slot] = ownerId;
+            statuses[slot] = status;
+            size++;
+        }
+
+        /**
+         * Backward-shift deletion: moves later entries of the probe run into the gap, so
+         * lookups never need tombstones.
+         */
+        private void removeAt(int gap) {
+            int mask = keys.length - 1;
+            int slot = gap;
+            while (true) {
+                slot = (slot + 1) & mask;
+                long key = keys[slot];
+                if (key == EMPTY) {
+                    break;
+                }
+                int home = home(key, mask);
+                boolean homeInRun = gap <= slot ? (gap < home && home <= slot) : (gap < home || home <= slot);
+                if (!homeInRun) {
+                    keys[gap] = key;
+                    owners[gap] = owners[slot];
+                    statuses[gap] = statuses[slot];
+                    gap = slot;
+                }
+            }
+            keys[gap] = EMPTY;
+            owners[gap] = 0;
+            statuses[gap] = REMOVED;
+            size--;
+        }
+
+        private void rehash(int capacity, boolean dropPending) {
+            long[] oldKeys = keys;
+            long[] oldOwners = owners;
+            byte[] oldStatuses = statuses;
+            allocate(capacity);
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != EMPTY
+                        && (!dropPending || (oldStatuses[i] != REMOVED && oldOwners[i] != UNKNOWN_OWNER))) {
+                    insert(oldKeys[i], oldOwners[i], oldStatuses[i]);
+                }
+            }
+        }
+
+        private void allocate(int capacity) {
+            keys = new long[capacity];
+            owners = new long[capacity];
+            statuses = new byte[capacity];
+            size = 0;
+        }
+    }
+}
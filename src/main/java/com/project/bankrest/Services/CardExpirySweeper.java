@@ -0,0 +1,119 @@
+package com.project.bankrest.Services;
+
+import com.project.bankrest.DTO.CardExpiryView;
+import com.project.bankrest.Entity.CardStatus;
+import com.project.bankrest.Event.CardStatusBulkEvent;
+import com.project.bankrest.Repository.CardRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Marks cards whose expiry month has passed as EXPIRED. Each run walks the
+ * (expiry_month, id) index from the oldest month up and updates at most maxBatches
+ * chunks of batchSize cards, each in its own short transaction, so a large backlog is
+ * worked off over several runs without long-held locks. Cards that are already EXPIRED
+ * still lie in the walked range and are filtered out on the way. Runs are reported as
+ * bankrest.cards.expiry-sweep.processed and .last-run.* meters.
+ */
+@Slf4j
+@Service
+public class CardExpirySweeper {
+
+    private final CardRepository cardRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Counter processedCounter;
+
+    @Value("${bankrest.cards.expiry-sweep.batch-size:500}")
+    private int batchSize = 500;
+
+    @Value("${bankrest.cards.expiry-sweep.max-batches:100}")
+    private int maxBatches = 100;
+
+    @Getter
+    private volatile long lastRunProcessed;
+    @Getter
+    private volatile Instant lastRunAt;
+    private final AtomicLong totalProcessed = new AtomicLong();
+
+    public CardExpirySweeper(CardRepository cardRepository,
+                             TransactionTemplate transactionTemplate,
+                             ApplicationEventPublisher eventPublisher,
+                             MeterRegistry meterRegistry) {
+        this.cardRepository = cardRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+        this.processedCounter = Counter.builder("bankrest.cards.expiry-sweep.processed").register(meterRegistry);
+        Gauge.builder("bankrest.cards.expiry-sweep.last-run.processed", this, CardExpirySweeper::getLastRunProcessed)
+                .register(meterRegistry);
+        Gauge.builder("bankrest.cards.expiry-sweep.last-run.timestamp", this,
+                        sweeper -> sweeper.lastRunAt == null ? 0 : sweeper.lastRunAt.getEpochSecond())
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    public long getTotalProcessed() {
+        return totalProcessed.get();
+    }
+
+    @Scheduled(fixedDelayString = "${bankrest.cards.expiry-sweep.interval:PT1H}",
+            initialDelayString = "${bankrest.cards.expiry-sweep.initial-delay:PT1M}")
+    public void sweepExpiredCards() {
+        sweep(YearMonth.now());
+    }
+
+    public long sweep(YearMonth currentMonth) {
+        int month = currentMonth.getYear() * 100 + currentMonth.getMonthValue();
+        long processed = 0;
+        int afterMonth = 0;
+        long afterId = 0;
+
+        for (int batch = 0; batch < maxBatches; batch++) {
+            int fromMonth = afterMonth;
+            long fromId = afterId;
+            List<CardExpiryView> cards = transactionTemplate.execute(status -> {
+                List<CardExpiryView> chunk = cardRepository.findExpiringBeforeAfter(
+                        month, CardStatus.EXPIRED, fromMonth, fromId, PageRequest.of(0, batchSize));
+                if (!chunk.isEmpty()) {
+                    List<Long> ids = chunk.stream().map(CardExpiryView::getId).toList();
+                    cardRepository.updateStatusByIdIn(ids, CardStatus.EXPIRED);
+                    eventPublisher.publishEvent(new CardStatusBulkEvent(ids, CardStatus.EXPIRED));
+                }
+                return chunk;
+            });
+            if (cards == null || cards.isEmpty()) {
+                break;
+            }
+            processed += cards.size();
+            CardExpiryView last = cards.get(cards.size() - 1);
+            afterMonth = last.getExpiryMonth();
+            afterId = last.getId();
+            if (cards.size() < batchSize) {
+                break;
+            }
+        }
+
+        lastRunProcessed = processed;
+        lastRunAt = Instant.now();
+        totalProcessed.addAndGet(processed);
+        processedCounter.increment(processed);
+        if (processed > 0) {
+            log.info("Expiry sweep marked {} cards as EXPIRED", processed);
+        }
+        return processed;
+    }
+}
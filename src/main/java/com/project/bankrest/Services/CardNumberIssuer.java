@@ -0,0 +1,291 @@
+package com.project.bankrest.Services;
+
+import com.project.bankrest.Repository.CardRepository;
+import com.project.bankrest.Security.EncryptionUtil;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Issues Luhn-valid card numbers inside the configured BIN ranges. Numbers are
+ * generated in batches, checked for uniqueness against the keyed number_hash index
+ * with one query per batch and parked in an in-memory pool. Taking a number is a
+ * queue poll; the pool is topped up in the background once it drops below the low
+ * watermark, so issuance latency does not depend on the database under bulk load.
+ *
+ * A number's hash stays reserved from the moment it is generated until the
+ * transaction that took it completes, so neither the pool nor a later batch can hand
+ * out a number whose card is not committed yet. Once the reservation is released the
+ * card is visible to the number_hash check instead.
+ */
+@Slf4j
+@Service
+public class CardNumberIssuer {
+
+    private static final int CARD_NUMBER_LENGTH = 16;
+    private static final int CHECK_CHUNK_SIZE = 1000;
+
+    private final CardRepository cardRepository;
+    private final EncryptionUtil encryptionUtil;
+    private final List<String> bins;
+    private final int poolSize;
+    private final int lowWatermark;
+    private final int validityYears;
+
+    // DRBG rather than the platform default: NativePRNG reads /dev/urandom while
+    // holding a monitor, which pins a virtual thread for the duration of the read
+    private final SecureRandom random = newSecureRandom();
+    private final ConcurrentLinkedQueue<String> pool = new ConcurrentLinkedQueue<>();
+    private final Set<String> reserved = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger pooled = new AtomicInteger();
+    private final AtomicBoolean refillScheduled = new AtomicBoolean();
+    private final ReentrantLock refillLock = new ReentrantLock();
+    private final ExecutorService refillExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "card-number-pool");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public CardNumberIssuer(CardRepository cardRepository,
+                            EncryptionUtil encryptionUtil,
+                            @Value("${bankrest.cards.issuer.bins:532124}") List<String> bins,
+                            @Value("${bankrest.cards.issuer.pool-size:1000}") int poolSize,
+                            @Value("${bankrest.cards.issuer.low-watermark:250}") int lowWatermark,
+                            @Value("${bankrest.cards.issuer.validity-years:4}") int validityYears) {
+        for (String bin : bins) {
+            if (!bin.matches("\\d{6,8}")) {
+                throw new IllegalArgumentException("BIN must be 6 to 8 digits: " + bin);
+            }
+        }
+        if (poolSize <= 0 || lowWatermark < 0 || lowWatermark >= poolSize) {
+            throw new IllegalArgumentException("Card number pool needs pool-size > low-watermark >= 0, got "
+                    + poolSize + " and " + lowWatermark);
+        }
+        this.cardRepository = cardRepository;
+        this.encryptionUtil = encryptionUtil;
+        this.bins = List.copyOf(bins);
+        this.poolSize = poolSize;
+        this.lowWatermark = lowWatermark;
+        this.validityYears = validityYears;
+    }
+
+    private static SecureRandom newSecureRandom() {
+        try {
+            return SecureRandom.getInstance("DRBG");
+        } catch (NoSuchAlgorithmException e) {
+            return new SecureRandom();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        scheduleRefill();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refillExecutor.shutdownNow();
+    }
+
+    /**
+     * Takes a number from the pool, refilling it once if empty. If concurrent callers
+     * drain the refill first, the number is generated directly instead of retrying.
+     */
+    public String nextNumber() {
+        String number = pool.poll();
+        if (number == null) {
+            refill();
+            number = pool.poll();
+        }
+        if (number == null) {
+            number = generateUnique(1).get(0);
+        } else if (pooled.decrementAndGet() < lowWatermark) {
+            scheduleRefill();
+        }
+        releaseAfterCompletion(List.of(number));
+        return number;
+    }
+
+    /**
+     * Takes up to count numbers from the pool and generates the rest directly, so a
+     * bulk issuance neither drains the pool for regular requests nor refills it in
+     * pool-sized steps.
+     */
+    public List<String> nextNumbers(int count) {
+        List<String> numbers = new ArrayList<>(count);
+        String number;
+        while (numbers.size() < count && (number = pool.poll()) != null) {
+            pooled.decrementAndGet();
+            numbers.add(number);
+        }
+        if (numbers.size() < count) {
+            numbers.addAll(generateUnique(count - numbers.size()));
+        }
+        if (pooled.get() < lowWatermark) {
+            scheduleRefill();
+        }
+        releaseAfterCompletion(numbers);
+        return numbers;
+    }
+
+    public String nextCvv() {
+        return String.format("%03d", random.nextInt(1000));
+    }
+
+    public String defaultExpirationDate() {
+        return YearMonth.now().plusYears(validityYears).toString();
+    }
+
+    public String numberHash(String number) {
+        return encryptionUtil.hash(number);
+    }
+
+    public int getPoolSize() {
+        return pooled.get();
+    }
+
+    /** Pooled numbers plus those taken by transactions that have not completed yet. */
+    public int getReservedCount() {
+        return reserved.size();
+    }
+
+    private void scheduleRefill() {
+        if (refillScheduled.compareAndSet(false, true)) {
+            refillExecutor.execute(() -> {
+                try {
+                    refill();
+                } catch (RuntimeException e) {
+                    log.warn("Card number pool refill failed", e);
+                } finally {
+                    refillScheduled.set(false);
+                }
+            });
+        }
+    }
+
+    /** Tops the pool back up to poolSize. */
+    public void refill() {
+        refillLock.lock();
+        try {
+            int missing = poolSize - pooled.get();
+            if (missing > 0) {
+                List<String> fresh = generateUnique(missing);
+                pool.addAll(fresh);
+                pooled.addAndGet(fresh.size());
+            }
+        } finally {
+            refillLock.unlock();
+        }
+    }
+
+    /**
+     * Generates count numbers not yet used by any card nor reserved. Candidates are
+     * reserved before they are checked against existing cards, with one IN query per
+     * round of at most CHECK_CHUNK_SIZE candidates; a candidate that is already reserved,
+     * by this call or anybody else, is redrawn, and those found in use are released.
+     */
+    private List<String> generateUnique(int count) {
+        List<String> fresh = new ArrayList<>(count);
+        while (fresh.size() < count) {
+            int round = Math.min(count - fresh.size(), CHECK_CHUNK_SIZE);
+            Map<String, String> candidates = new HashMap<>();
+            while (candidates.size() < round) {
+                String number = generate();
+                String hash = encryptionUtil.hash(number);
+                if (reserved.add(hash)) {
+                    candidates.put(hash, number);
+                }
+            }
+
+            Set<String> taken;
+            try {
+                taken = cardRepository.findExistingNumberHashes(candidates.keySet());
+            } catch (RuntimeException e) {
+                reserved.removeAll(candidates.keySet());
+                reserved.removeAll(fresh.stream().map(encryptionUtil::hash).toList());
+                throw e;
+            }
+            candidates.forEach((hash, number) -> {
+                if (taken.contains(hash)) {
+                    reserved.remove(hash);
+                } else {
+                    fresh.add(number);
+                }
+            });
+        }
+        return fresh;
+    }
+
+    /**
+     * Keeps the numbers reserved until the caller's transaction commits or rolls back.
+     * Outside a transaction there is nothing to wait for and they are released at once.
+     */
+    private void releaseAfterCompletion(List<String> numbers) {
+        List<String> hashes = numbers.stream().map(encryptionUtil::hash).toList();
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            hashes.forEach(reserved::remove);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                hashes.forEach(reserved::remove);
+            }
+        });
+    }
+
+    String generate() {
+        String bin = bins.get(random.nextInt(bins.size()));
+        StringBuilder number = new StringBuilder(CARD_NUMBER_LENGTH).append(bin);
+        while (number.length() < CARD_NUMBER_LENGTH - 1) {
+            number.append(random.nextInt(10));
+        }
+        return number.append(luhnCheckDigit(number)).toString();
+    }
+
+    static int luhnCheckDigit(CharSequence payload) {
+        int sum = 0;
+        boolean doubleDigit = true;
+        for (int i = payload.length() - 1; i >= 0; i--) {
+            int digit = payload.charAt(i) - '0';
+            if (doubleDigit) {
+                digit *= 2;
+                if (digit > 9) {
+                    digit -= 9;
+                }
+            }
+            sum += digit;
+            doubleDigit = !doubleDigit;
+        }
+        return (10 - sum % 10) % 10;
+    }
+
+    public static boolean isLuhnValid(String number) {
+        if (number == null || number.length() < 2 || !number.chars().allMatch(Character::isDigit)) {
+            return false;
+        }
+        int checkDigit = number.charAt(number.length() - 1) - '0';
+        return luhnCheckDigit(number.subSequence(0, number.length() - 1)) == checkDigit;
+    }
+}
@@ -1,33 +1,102 @@
 package com.project.bankrest.Services;
 
+import com.project.bankrest.DTO.BalanceCacheStats;
+import com.project.bankrest.DTO.BulkStatusRequest;
+import com.project.bankrest.DTO.BulkStatusResponse;
+import com.project.bankrest.DTO.CardBalanceView;
+import com.project.bankrest.DTO.CardListVersion;
+import com.project.bankrest.DTO.CardResponse;
+import com.project.bankrest.DTO.CardStatusView;
 import com.project.bankrest.DTO.CreateCardRequest;
 import com.project.bankrest.DTO.TransferRequest;
 import com.project.bankrest.Entity.Card;
+import com.project.bankrest.Entity.CardStatus;
 import com.project.bankrest.Entity.User;
+import com.project.bankrest.Event.CardEvent;
+import com.project.bankrest.Event.CardStatusBulkEvent;
+import com.project.bankrest.Event.CardTransferEvent;
 import com.project.bankrest.Repository.CardRepository;
 import com.project.bankrest.Repository.UserRepository;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 @Service
 @RequiredArgsConstructor
+@Timed("bankrest.service")
 public class CardService {
 
+    private static final int BULK_CHUNK_SIZE = 1000;
+
     private final CardRepository cardRepository;
     private final UserRepository userRepository;
+    private final CardNumberIssuer cardNumberIssuer;
+    private final CardBalanceCache cardBalanceCache;
+    private final CardDirectory cardDirectory;
+    private final ApplicationEventPublisher eventPublisher;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Flushes before publishing so the event carries the version the row is written
+     * with. Bulk status updates go around the entities and publish a
+     * CardStatusBulkEvent instead.
+     */
+    private Card saveAndPublish(Card card, CardEvent.Type type) {
+        Card saved = cardRepository.saveAndFlush(card);
+        eventPublisher.publishEvent(CardEvent.of(type, saved));
+        return saved;
+    }
+
     private Card getCardAndVerifyOwner(Long cardId, Long userId) {
-        Card card = cardRepository.findById(cardId)
-                .orElseThrow(() -> new RuntimeException("Card not found."));
-        if (!card.getUser().getId().equals(userId)) {
+        rejectForeignCard(cardId, userId);
+        return cardRepository.findByIdAndUserId(cardId, userId)
+                .orElseThrow(() -> ownershipFailure(cardId));
+    }
+
+    /**
+     * Refuses other users' cards from the directory alone. Cards it does not know pass
+     * and are checked by the owner-scoped query. The directory is rebuilt from the
+     * database every reconcile-interval, which bounds how long a change made elsewhere
+     * can be answered from a stale entry.
+     */
+    private void rejectForeignCard(Long cardId, Long userId) {
+        long owner = cardDirectory.ownerOf(cardId);
+        if (owner != CardDirectory.UNKNOWN_OWNER && owner != userId) {
             throw new SecurityException("Access denied: Card does not belong to the user.");
         }
-        return card;
+    }
+
+    /**
+     * Owner-scoped lookups return nothing both for missing cards and for other users'
+     * cards; an id-only existence check tells the two apart without reading the row.
+     */
+    private RuntimeException ownershipFailure(Long cardId) {
+        if (cardRepository.existsById(cardId)) {
+            return new SecurityException("Access denied: Card does not belong to the user.");
+        }
+        return new RuntimeException("Card not found.");
+    }
+
+    private boolean isKnownAndNot(Long cardId, CardStatus status) {
+        CardStatus known = cardDirectory.statusOf(cardId);
+        return known != null && known != status;
     }
 
     @Transactional
@@ -37,31 +106,44 @@ public class CardService {
         }
         User user = userRepository.findById(request.getUserId())
                 .orElseThrow(() -> new RuntimeException("User not found"));
+        String number = cardNumberIssuer.nextNumber();
         Card card = new Card();
-        card.setNumber(request.getNumber());
-        card.setCvv(request.getCvv());
+        card.setNumber(number);
+        card.setNumberHash(cardNumberIssuer.numberHash(number));
+        card.setCvv(cardNumberIssuer.nextCvv());
         card.setBalance(new BigDecimal(request.getBalance()));
-        card.setExpirationDate(request.getExpirationDate());
-        card.setStatus(request.getStatus() != null ? request.getStatus() : "ACTIVE");
+        card.setExpirationDate(request.getExpirationDate() != null
+                ? request.getExpirationDate()
+                : cardNumberIssuer.defaultExpirationDate());
+        card.setStatus(request.getStatus() != null ? request.getStatus() : CardStatus.ACTIVE);
         card.setUser(user);
 
-        return cardRepository.save(card);
+        return saveAndPublish(card, CardEvent.Type.CREATED);
     }
 
-    public List<Card> getAllCardsByUserId(Long userId) {
-        return cardRepository.findByUserId(userId);
+    @Transactional(readOnly = true)
+    public List<CardResponse> getAllCardsByUserId(Long userId) {
+        return cardRepository.findResponsesByUserId(userId);
     }
 
+    /**
+     * Card numbers only come from CardNumberIssuer, so the request may repeat the card's
+     * number or leave it out, but not change it.
+     */
     @Transactional
     public Card updateCard(Long cardId, CreateCardRequest request) {
         Card card = cardRepository.findById(cardId)
                 .orElseThrow(() -> new RuntimeException("Card not found"));
+        if (request.getNumber() != null && !request.getNumber().equals(card.getNumber())) {
+            throw new IllegalArgumentException("Card number cannot be changed.");
+        }
 
-        card.setNumber(request.getNumber());
         card.setCvv(request.getCvv());
         card.setBalance(new BigDecimal(request.getBalance()));
         card.setExpirationDate(request.getExpirationDate());
-        card.setStatus(request.getStatus());
+        if (request.getStatus() != null) {
+            card.setStatus(request.getStatus());
+        }
 
         if (request.getUserId() != null) {
             User user = userRepository.findById(request.getUserId())
@@ -69,54 +151,168 @@ public class CardService {
             card.setUser(user);
         }
 
-        return cardRepository.save(card);
+        return saveAndPublish(card, CardEvent.Type.UPDATED);
     }
 
     @Transactional
-    public Card updateCardStatus(Long cardId, String status) {
+    public Card updateCardStatus(Long cardId, CardStatus status) {
         Card card = cardRepository.findById(cardId)
                 .orElseThrow(() -> new RuntimeException("Card not found."));
         card.setStatus(status);
-        return cardRepository.save(card);
+        return saveAndPublish(card, CardEvent.Type.UPDATED);
+    }
+
+    /**
+     * Applies one status to many cards with a single UPDATE per chunk of ids instead of a
+     * find-then-save round trip per card. Cards are picked either by id list (optionally
+     * restricted to those currently in currentStatus) or, when no ids are given, by
+     * currentStatus alone, walking the matching ids in keyset order. Each chunk is read
+     * with SELECT ... FOR UPDATE, so a card whose status another transaction changes in
+     * the meantime is neither updated against its new status nor reported as UPDATED.
+     */
+    @Transactional
+    public BulkStatusResponse updateCardStatuses(BulkStatusRequest request) {
+        CardStatus target = request.getStatus();
+        CardStatus expected = request.getCurrentStatus();
+        if (target == null) {
+            throw new IllegalArgumentException("Target status must not be null.");
+        }
+
+        Map<Long, BulkStatusResponse.Outcome> results = new LinkedHashMap<>();
+
+        if (request.getCardIds() != null && !request.getCardIds().isEmpty()) {
+            List<Long> ids = request.getCardIds().stream().distinct().toList();
+            for (int from = 0; from < ids.size(); from += BULK_CHUNK_SIZE) {
+                List<Long> chunk = ids.subList(from, Math.min(from + BULK_CHUNK_SIZE, ids.size()));
+
+                Map<Long, CardStatus> current = new HashMap<>();
+                for (CardStatusView view : cardRepository.lockStatusesByIdIn(chunk)) {
+                    current.put(view.getId(), view.getStatus());
+                }
+
+                List<Long> eligible = new ArrayList<>();
+                for (Long id : chunk) {
+                    CardStatus status = current.get(id);
+                    if (status == null) {
+                        results.put(id, BulkStatusResponse.Outcome.NOT_FOUND);
+                    } else if (status == target || (expected != null && status != expected)) {
+                        results.put(id, BulkStatusResponse.Outcome.UNCHANGED);
+                    } else {
+                        eligible.add(id);
+                        results.put(id, BulkStatusResponse.Outcome.UPDATED);
+                    }
+                }
+
+                if (!eligible.isEmpty()) {
+                    cardRepository.updateStatusByIdIn(eligible, target);
+                }
+            }
+        } else if (expected != null) {
+            if (expected == target) {
+                throw new IllegalArgumentException("Current and target status must differ.");
+            }
+            long afterId = 0;
+            List<Long> chunk;
+            do {
+                chunk = cardRepository.lockIdsByStatusAfter(expected, afterId, PageRequest.of(0, BULK_CHUNK_SIZE));
+                if (chunk.isEmpty()) {
+                    break;
+                }
+                cardRepository.updateStatusByIdIn(chunk, target);
+                chunk.forEach(id -> results.put(id, BulkStatusResponse.Outcome.UPDATED));
+                afterId = chunk.get(chunk.size() - 1);
+            } while (chunk.size() == BULK_CHUNK_SIZE);
+        } else {
+            throw new IllegalArgumentException("Either cardIds or currentStatus must be provided.");
+        }
+
+        List<Long> updated = results.entrySet().stream()
+                .filter(result -> result.getValue() == BulkStatusResponse.Outcome.UPDATED)
+                .map(Map.Entry::getKey)
+                .toList();
+        if (!updated.isEmpty()) {
+            eventPublisher.publishEvent(new CardStatusBulkEvent(updated, target));
+        }
+
+        return BulkStatusResponse.of(results);
     }
 
     @Transactional
     public void deleteCard(Long cardId) {
-        cardRepository.deleteById(cardId);
+        cardRepository.findById(cardId).ifPresent(card -> {
+            cardRepository.delete(card);
+            eventPublisher.publishEvent(CardEvent.of(CardEvent.Type.DELETED, card));
+        });
     }
 
-    public List<Card> getAllCards() {
-        return cardRepository.findAllWithUserOrderByIdAsc();
+    @Transactional(readOnly = true)
+    public List<CardResponse> getAllCards() {
+        return cardRepository.findAllResponses();
     }
 
-    public Page<Card> getUserCards(Long userId, String search, Pageable pageable) {
+    @Transactional(readOnly = true)
+    public Page<CardResponse> getUserCards(Long userId, String search, Pageable pageable) {
         if (search != null && !search.isEmpty()) {
-            return cardRepository.findByUser_IdAndNumberContainingWithUserEagerly(userId, search, pageable);
+            return cardRepository.findResponsesByUserIdAndNumberContaining(userId, search, pageable);
         }
-        return cardRepository.findByUser_IdWithUserEagerly(userId, pageable);
+        return cardRepository.findResponsesByUserId(userId, pageable);
     }
 
-    public BigDecimal getCardBalance(Long cardId, Long userId) {
-        Card card = getCardAndVerifyOwner(cardId, userId);
-        return card.getBalance();
+    @Transactional(readOnly = true)
+    public Page<CardResponse> getBlockRequests(Pageable pageable) {
+        return cardRepository.findBlockRequests(pageable);
+    }
+
+    /**
+     * Version of everything getUserCards can return for the user, read without loading
+     * or decrypting any card.
+     */
+    @Transactional(readOnly = true)
+    public CardListVersion getUserCardsVersion(Long userId) {
+        return cardRepository.findListVersionByUserId(userId);
+    }
+
+    /**
+     * Balance together with the card version it was read at, from the cache or from one
+     * query, so a caller building an ETag from the version always describes this
+     * balance. Not transactional, so a cache hit never touches the connection pool.
+     */
+    public CardBalanceView getCardBalance(Long cardId, Long userId) {
+        CardBalanceView cached = cardBalanceCache.get(cardId, userId);
+        if (cached != null) {
+            return cached;
+        }
+        rejectForeignCard(cardId, userId);
+        CardBalanceView view = cardRepository.findBalanceViewByIdAndUserId(cardId, userId)
+                .orElseThrow(() -> ownershipFailure(cardId));
+        cardBalanceCache.put(cardId, userId, view.getBalance(), view.getVersion());
+        return view;
+    }
+
+    public BalanceCacheStats getBalanceCacheStats() {
+        return cardBalanceCache.getStats();
     }
 
     @Transactional
     public Card requestCardBlock(Long cardId, Long userId) {
         Card card = getCardAndVerifyOwner(cardId, userId);
-        card.setStatus("BLOCK_REQUESTED");
-        return cardRepository.save(card);
+        card.setStatus(CardStatus.BLOCK_REQUESTED);
+        return saveAndPublish(card, CardEvent.Type.UPDATED);
     }
     @Transactional
     public Card cancelCardBlockRequest(Long cardId, Long userId) {
+        rejectForeignCard(cardId, userId);
+        if (isKnownAndNot(cardId, CardStatus.BLOCK_REQUESTED)) {
+            throw new IllegalArgumentException("Card is not in BLOCK_REQUESTED status.");
+        }
         Card card = getCardAndVerifyOwner(cardId, userId);
 
-        if (!"BLOCK_REQUESTED".equals(card.getStatus())) {
+        if (card.getStatus() != CardStatus.BLOCK_REQUESTED) {
             throw new IllegalArgumentException("Card is not in BLOCK_REQUESTED status.");
         }
 
-        card.setStatus("ACTIVE");
-        return cardRepository.save(card);
+        card.setStatus(CardStatus.ACTIVE);
+        return saveAndPublish(card, CardEvent.Type.UPDATED);
     }
 
     @Transactional
@@ -126,26 +322,65 @@ public class CardService {
         BigDecimal amount = request.getAmount();
 
         if (sourceCardId.equals(destCardId))
-            throw new IllegalArgumentException("Cannot transfer to the same card.");
+            throw rejectTransfer("same_card", "Cannot transfer to the same card.");
         if (amount.compareTo(BigDecimal.ZERO) <= 0)
-            throw new IllegalArgumentException("Transfer amount must be positive.");
+            throw rejectTransfer("non_positive_amount", "Transfer amount must be positive.");
+
+        if (isKnownAndNot(sourceCardId, CardStatus.ACTIVE) || isKnownAndNot(destCardId, CardStatus.ACTIVE))
+            throw rejectTransfer("inactive_card", "One or both cards are not active.");
 
         Card sourceCard = cardRepository.findById(sourceCardId)
-                .orElseThrow(() -> new IllegalArgumentException("Source card not found"));
+                .orElseThrow(() -> rejectTransfer("card_not_found", "Source card not found"));
         Card destCard = cardRepository.findById(destCardId)
-                .orElseThrow(() -> new IllegalArgumentException("Destination card not found"));
+                .orElseThrow(() -> rejectTransfer("card_not_found", "Destination card not found"));
 
-        if (!"ACTIVE".equals(sourceCard.getStatus()) || !"ACTIVE".equals(destCard.getStatus()))
-            throw new IllegalArgumentException("One or both cards are not active.");
+        if (sourceCard.getStatus() != CardStatus.ACTIVE || destCard.getStatus() != CardStatus.ACTIVE)
+            throw rejectTransfer("inactive_card", "One or both cards are not active.");
 
         if (sourceCard.getBalance().compareTo(amount) < 0)
-            throw new IllegalArgumentException("Insufficient funds.");
+            throw rejectTransfer("insufficient_funds", "Insufficient funds.");
 
         sourceCard.setBalance(sourceCard.getBalance().subtract(amount));
         destCard.setBalance(destCard.getBalance().add(amount));
 
-        cardRepository.save(sourceCard);
-        cardRepository.save(destCard);
+        // one flush for both rows keeps them in a single UPDATE batch; a concurrent
+        // change to either card fails it on the version check
+        try {
+            cardRepository.saveAllAndFlush(List.of(sourceCard, destCard));
+        } catch (OptimisticLockingFailureException e) {
+            transferCounter("conflict").increment();
+            throw e;
+        }
+        eventPublisher.publishEvent(CardEvent.of(CardEvent.Type.UPDATED, sourceCard));
+        eventPublisher.publishEvent(CardEvent.of(CardEvent.Type.UPDATED, destCard));
+        eventPublisher.publishEvent(new CardTransferEvent(sourceCardId, destCardId, amount));
+        countAfterCommit(transferCounter("completed"));
+    }
+
+    /**
+     * A flushed transfer can still fail at commit, so it only counts as completed once
+     * the transaction has committed. Outside a transaction it is counted at once.
+     */
+    private void countAfterCommit(Counter counter) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            counter.increment();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                counter.increment();
+            }
+        });
+    }
+
+    private IllegalArgumentException rejectTransfer(String reason, String message) {
+        transferCounter(reason).increment();
+        return new IllegalArgumentException(message);
+    }
+
+    private Counter transferCounter(String outcome) {
+        return Counter.builder("bankrest.transfers").tag("outcome", outcome).register(meterRegistry);
     }
 
 }
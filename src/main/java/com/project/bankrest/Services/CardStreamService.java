@@ -0,0 +1,387 @@
+package com.project.bankrest.Services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.project.bankrest.DTO.CardOwnershipView;
+import com.project.bankrest.DTO.CardStreamUpdate;
+import com.project.bankrest.Event.CardEvent;
+import com.project.bankrest.Event.CardStatusBulkEvent;
+import com.project.bankrest.Repository.CardRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Pushes card changes to their owner's open /api/cards/stream connections, so the
+ * dashboard does not have to poll. An idle connection is an async request holding an
+ * SseEmitter and a small queue, and no thread. Events are queued after commit and
+ * written by a few sender threads; a connection whose queue fills up because the client
+ * stopped reading is closed, and the client reconnects and reloads. A heartbeat comment
+ * keeps proxies from dropping idle connections.
+ *
+ * Servlet writes block once the client's TCP window is full, so a client that stops
+ * reading can hold a sender thread rather than fill its queue. A write still running
+ * after write-timeout drops its connection and the pool gets a replacement thread, up
+ * to max-stalled-writes at a time; the stuck thread leaves the pool once the
+ * container's own write timeout fails the write.
+ */
+@Slf4j
+@Service
+public class CardStreamService {
+
+    private static final long RECONNECT_MILLIS = 3000;
+    private static final int LOOKUP_CHUNK_SIZE = 1000;
+    private static final int IDLE = 0;
+    private static final int WRITING = 1;
+    private static final int STALLED = 2;
+
+    private final CardRepository cardRepository;
+    private final CardDirectory cardDirectory;
+    private final ObjectMapper objectMapper;
+    private final long timeoutMillis;
+    private final int bufferSize;
+    private final int maxPerUser;
+    private final int maxSubscribers;
+    private final long writeTimeoutNanos;
+    private final int sendThreads;
+    private final int maxStalledWrites;
+    private final ThreadPoolExecutor sender;
+    private final Counter overflows;
+    private final Counter stalls;
+
+    private final Map<Long, Queue<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private final Set<Subscriber> writing = ConcurrentHashMap.newKeySet();
+    private final ReentrantLock senderSizeLock = new ReentrantLock();
+    private int stalledWrites;
+
+    public CardStreamService(CardRepository cardRepository,
+                             CardDirectory cardDirectory,
+                             ObjectMapper objectMapper,
+                             MeterRegistry meterRegistry,
+                             @Value("${bankrest.cards.stream.timeout:PT30M}") Duration timeout,
+                             @Value("${bankrest.cards.stream.buffer-size:32}") int bufferSize,
+                             @Value("${bankrest.cards.stream.max-per-user:5}") int maxPerUser,
+                             @Value("${bankrest.cards.stream.max-subscribers:50000}") int maxSubscribers,
+                             @Value("${bankrest.cards.stream.send-threads:4}") int sendThreads,
+                             @Value("${bankrest.cards.stream.write-timeout:PT5S}") Duration writeTimeout,
+                             @Value("${bankrest.cards.stream.max-stalled-writes:64}") int maxStalledWrites) {
+        this.cardRepository = cardRepository;
+        this.cardDirectory = cardDirectory;
+        this.objectMapper = objectMapper;
+        this.timeoutMillis = timeout.toMillis();
+        this.bufferSize = bufferSize;
+        this.maxPerUser = maxPerUser;
+        this.maxSubscribers = maxSubscribers;
+        this.writeTimeoutNanos = writeTimeout.toNanos();
+        this.sendThreads = sendThreads;
+        this.maxStalledWrites = maxStalledWrites;
+        AtomicInteger counter = new AtomicInteger();
+        // room above the core size for the replacements of stalled threads
+        this.sender = new ThreadPoolExecutor(sendThreads, sendThreads + maxStalledWrites,
+                30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "card-stream-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        Gauge.builder("bankrest.cards.stream.subscribers", subscriberCount, AtomicInteger::get).register(meterRegistry);
+        this.overflows = Counter.builder("bankrest.cards.stream.overflows").register(meterRegistry);
+        this.stalls = Counter.builder("bankrest.cards.stream.stalled-writes").register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sender.shutdownNow();
+        subscribers.values().forEach(queue -> queue.forEach(Subscriber::close));
+    }
+
+    public int getSubscriberCount() {
+        return subscriberCount.get();
+    }
+
+    /**
+     * Opens a stream for the user. Past maxPerUser connections the user's oldest one
+     * is closed, so abandoned tabs do not lock them out.
+     *
+     * @throws IllegalStateException when the node already holds maxSubscribers streams
+     */
+    public SseEmitter subscribe(Long userId) {
+        if (subscriberCount.incrementAndGet() > maxSubscribers) {
+            subscriberCount.decrementAndGet();
+            throw new IllegalStateException("Too many open card streams.");
+        }
+        Subscriber subscriber = new Subscriber(userId, newEmitter(timeoutMillis));
+        SseEmitter emitter = subscriber.emitter;
+        emitter.onCompletion(subscriber::release);
+        emitter.onTimeout(subscriber::release);
+        emitter.onError(e -> subscriber.release());
+
+        List<Subscriber> evicted = new ArrayList<>();
+        subscribers.compute(userId, (id, queue) -> {
+            Queue<Subscriber> own = queue != null ? queue : new ConcurrentLinkedQueue<>();
+            own.add(subscriber);
+            while (own.size() > maxPerUser) {
+                evicted.add(own.poll());
+            }
+            return own;
+        });
+        evicted.forEach(Subscriber::close);
+
+        subscriber.offer(SseEmitter.event().comment("connected").reconnectTime(RECONNECT_MILLIS).build());
+        return emitter;
+    }
+
+    protected SseEmitter newEmitter(long timeoutMillis) {
+        return new SseEmitter(timeoutMillis);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onCardEvent(CardEvent event) {
+        Queue<Subscriber> own = subscribers.get(event.getUserId());
+        if (own == null) {
+            return;
+        }
+        CardStreamUpdate update = event.getType() == CardEvent.Type.DELETED
+                ? CardStreamUpdate.deleted(event.getCardId())
+                : new CardStreamUpdate(event.getCardId(), event.getStatus(), event.getBalance(), event.getVersion(), null);
+        deliver(own, update);
+    }
+
+    /**
+     * Bulk events carry no owners. They are resolved off the committing thread, from
+     * the card directory where it knows the card and otherwise in chunked queries, and
+     * only when somebody is listening at all.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onCardStatusBulkEvent(CardStatusBulkEvent event) {
+        if (subscriberCount.get() == 0) {
+            return;
+        }
+        sender.execute(() -> deliverBulk(event));
+    }
+
+    @Scheduled(fixedDelayString = "${bankrest.cards.stream.heartbeat:PT25S}")
+    public void heartbeat() {
+        if (subscriberCount.get() == 0) {
+            return;
+        }
+        Set<DataWithMediaType> ping = SseEmitter.event().comment("ping").build();
+        subscribers.values().forEach(queue -> queue.forEach(subscriber -> subscriber.offer(ping)));
+    }
+
+    /**
+     * Drops connections whose current write has run past write-timeout and gives the
+     * sender pool a thread in place of each one still blocked in it.
+     */
+    @Scheduled(fixedDelayString = "${bankrest.cards.stream.stall-check:PT1S}")
+    public void dropStalledWrites() {
+        long now = System.nanoTime();
+        for (Subscriber subscriber : writing) {
+            if (now - subscriber.writeStarted > writeTimeoutNanos && subscriber.stall()) {
+                stalls.increment();
+                resizeSender(1);
+            }
+        }
+    }
+
+    private void resizeSender(int delta) {
+        senderSizeLock.lock();
+        try {
+            stalledWrites += delta;
+            sender.setCorePoolSize(sendThreads + Math.max(0, Math.min(stalledWrites, maxStalledWrites)));
+        } finally {
+            senderSizeLock.unlock();
+        }
+    }
+
+    private void deliverBulk(CardStatusBulkEvent event) {
+        List<Long> unknown = new ArrayList<>();
+        for (Long cardId : event.getCardIds()) {
+            long owner = cardDirectory.ownerOf(cardId);
+            if (owner == CardDirectory.UNKNOWN_OWNER) {
+                unknown.add(cardId);
+            } else {
+                deliverStatus(owner, cardId, event);
+            }
+        }
+        for (int from = 0; from < unknown.size(); from += LOOKUP_CHUNK_SIZE) {
+            List<Long> chunk = unknown.subList(from, Math.min(from + LOOKUP_CHUNK_SIZE, unknown.size()));
+            for (CardOwnershipView card : cardRepository.findOwnershipByIdIn(chunk)) {
+                deliverStatus(card.getUserId(), card.getId(), event);
+            }
+        }
+    }
+
+    private void deliverStatus(long userId, Long cardId, CardStatusBulkEvent event) {
+        Queue<Subscriber> own = subscribers.get(userId);
+        if (own != null) {
+            deliver(own, new CardStreamUpdate(cardId, event.getStatus(), null, null, null));
+        }
+    }
+
+    /**
+     * Serialized once and shared by all of the user's connections.
+     */
+    private void deliver(Queue<Subscriber> own, CardStreamUpdate update) {
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(update);
+        } catch (JsonProcessingException e) {
+            log.warn("Card stream update for card {} not serializable", update.getCardId(), e);
+            return;
+        }
+        Set<DataWithMediaType> data = SseEmitter.event().name("card").data(json).build();
+        own.forEach(subscriber -> subscriber.offer(data));
+    }
+
+    private final class Subscriber {
+        private final Long userId;
+        private final SseEmitter emitter;
+        private final BlockingQueue<Set<DataWithMediaType>> pending;
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private final AtomicBoolean completed = new AtomicBoolean();
+        // IDLE, WRITING, or STALLED once the stall check has replaced the writing thread
+        private final AtomicInteger writeState = new AtomicInteger(IDLE);
+        // System.nanoTime() when the running write started
+        private volatile long writeStarted;
+
+        private Subscriber(Long userId, SseEmitter emitter) {
+            this.userId = userId;
+            this.emitter = emitter;
+            this.pending = new ArrayBlockingQueue<>(bufferSize);
+        }
+
+        void offer(Set<DataWithMediaType> data) {
+            if (closed.get()) {
+                return;
+            }
+            if (!pending.offer(data)) {
+                overflows.increment();
+                close();
+                return;
+            }
+            scheduleDrain();
+        }
+
+        private void scheduleDrain() {
+            if (draining.compareAndSet(false, true)) {
+                try {
+                    sender.execute(this::drain);
+                } catch (RuntimeException e) {
+                    draining.set(false);
+                    close();
+                }
+            }
+        }
+
+        private void drain() {
+            try {
+                Set<DataWithMediaType> data;
+                while (!closed.get() && (data = pending.poll()) != null) {
+                    writeStarted = System.nanoTime();
+                    writeState.set(WRITING);
+                    writing.add(this);
+                    try {
+                        emitter.send(data);
+                    } finally {
+                        writing.remove(this);
+                        if (writeState.getAndSet(IDLE) == STALLED) {
+                            resizeSender(-1);
+                        }
+                    }
+                }
+            } catch (IOException | IllegalStateException e) {
+                // the client went away; the container reports it through onError as well
+                release();
+            } finally {
+                draining.set(false);
+            }
+            if (closed.get()) {
+                complete();
+            } else if (!pending.isEmpty()) {
+                scheduleDrain();
+            }
+        }
+
+        /**
+         * Called by the stall check for a write past write-timeout. Only forgets the
+         * connection: completing the emitter would wait for the blocked write, so the
+         * drain completes it once the write returns.
+         */
+        boolean stall() {
+            if (!writeState.compareAndSet(WRITING, STALLED)) {
+                return false;
+            }
+            release();
+            return true;
+        }
+
+        /**
+         * Ends the stream from this side. The emitter is completed here unless a drain
+         * is writing to it, in which case the drain completes it when the write returns.
+         */
+        void close() {
+            if (release() && draining.compareAndSet(false, true)) {
+                try {
+                    complete();
+                } finally {
+                    draining.set(false);
+                }
+            }
+        }
+
+        private void complete() {
+            if (completed.compareAndSet(false, true)) {
+                try {
+                    emitter.complete();
+                } catch (RuntimeException e) {
+                    log.debug("Card stream already closed: {}", e.getMessage());
+                }
+            }
+        }
+
+        /**
+         * Forgets the connection once; for streams the container has already ended.
+         */
+        boolean release() {
+            if (!closed.compareAndSet(false, true)) {
+                return false;
+            }
+            subscriberCount.decrementAndGet();
+            subscribers.computeIfPresent(userId, (id, queue) -> {
+                queue.remove(this);
+                return queue.isEmpty() ? null : queue;
+            });
+            pending.clear();
+            return true;
+        }
+    }
+}
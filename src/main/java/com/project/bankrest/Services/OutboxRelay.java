@@ -0,0 +1,188 @@
+package com.project.bankrest.Services;
+
+import com.project.bankrest.DTO.OutboxMessage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hands committed outbox rows to the OutboxSink in id order, batchSize at a time, and
+ * keeps its position in outbox_position. The position row stays locked while a batch
+ * is published, so with several instances only one relays at a time, and it only moves
+ * once the sink has accepted the batch.
+ *
+ * Ids are taken at insert but become visible at commit, so a missing id can belong to
+ * a transaction that is still committing. The relay stops in front of such a gap until
+ * the row after it is older than gapTimeout, both measured on the database clock. The
+ * missing ids are then stepped over but remembered in outbox_gap, and every batch
+ * rechecks them: a row that commits late is still published, after rows with higher
+ * ids. An id still missing after gapRetention is taken to have been rolled back.
+ */
+@Component
+@ConditionalOnProperty(name = "bankrest.outbox.relay.enabled", havingValue = "true", matchIfMissing = true)
+public class OutboxRelay {
+
+    private static final String SELECT_SQL =
+            "SELECT id, event_type, card_id, payload, created_at FROM outbox_event WHERE id > ? ORDER BY id LIMIT ?";
+    private static final String SELECT_GAPS_SQL =
+            "SELECT e.id, e.event_type, e.card_id, e.payload, e.created_at FROM outbox_event e "
+                    + "JOIN outbox_gap g ON g.outbox_id = e.id WHERE g.relay = ? ORDER BY e.id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final OutboxSink sink;
+    private final String name;
+    private final int batchSize;
+    private final Duration gapTimeout;
+    private final Duration gapRetention;
+    private final Duration retention;
+    private final Counter published;
+
+    public OutboxRelay(JdbcTemplate jdbcTemplate,
+                       TransactionTemplate transactionTemplate,
+                       OutboxSink sink,
+                       MeterRegistry meterRegistry,
+                       @Value("${bankrest.outbox.relay.name:relay}") String name,
+                       @Value("${bankrest.outbox.relay.batch-size:500}") int batchSize,
+                       @Value("${bankrest.outbox.relay.gap-timeout:PT10S}") Duration gapTimeout,
+                       @Value("${bankrest.outbox.relay.gap-retention:PT15M}") Duration gapRetention,
+                       @Value("${bankrest.outbox.retention:P7D}") Duration retention) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.sink = sink;
+        this.name = name;
+        this.batchSize = batchSize;
+        this.gapTimeout = gapTimeout;
+        this.gapRetention = gapRetention;
+        this.retention = retention;
+        this.published = Counter.builder("bankrest.outbox.published").tag("relay", name).register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${bankrest.outbox.relay.interval:PT1S}")
+    public void relayPending() {
+        relay();
+    }
+
+    /**
+     * Publishes batches until the relay has caught up or stops at a gap.
+     */
+    public int relay() {
+        int total = 0;
+        Integer relayed;
+        do {
+            relayed = transactionTemplate.execute(status -> relayBatch());
+            total += relayed;
+        } while (relayed == batchSize);
+        return total;
+    }
+
+    public long getPosition() {
+        List<Long> position = jdbcTemplate.queryForList(
+                "SELECT last_id FROM outbox_position WHERE relay = ?", Long.class, name);
+        return position.isEmpty() ? 0 : position.get(0);
+    }
+
+    /**
+     * Deletes rows every relay has passed once they are older than the retention period.
+     */
+    @Scheduled(fixedDelayString = "${bankrest.outbox.purge.interval:PT1H}",
+            initialDelayString = "${bankrest.outbox.purge.initial-delay:PT5M}")
+    public int purgePublished() {
+        return jdbcTemplate.update(
+                "DELETE FROM outbox_event WHERE id <= (SELECT MIN(last_id) FROM outbox_position) AND created_at < ?",
+                Timestamp.from(Instant.now().minus(retention)));
+    }
+
+    private int relayBatch() {
+        long position = lockPosition();
+        Instant now = jdbcTemplate.queryForObject("SELECT LOCALTIMESTAMP", Timestamp.class).toInstant();
+        List<OutboxMessage> late = lateRows(now);
+        List<OutboxMessage> rows = jdbcTemplate.query(SELECT_SQL, OutboxRelay::toMessage, position, batchSize);
+        List<Long> skipped = new ArrayList<>();
+        List<OutboxMessage> inOrder = upToFirstOpenGap(position, rows, now, skipped);
+        if (late.isEmpty() && inOrder.isEmpty()) {
+            return 0;
+        }
+        List<OutboxMessage> batch = new ArrayList<>(inOrder);
+        batch.addAll(late);
+        try {
+            sink.publish(batch);
+        } catch (Exception e) {
+            throw new IllegalStateException("Outbox sink rejected batch after id " + position, e);
+        }
+        jdbcTemplate.batchUpdate("DELETE FROM outbox_gap WHERE relay = ? AND outbox_id = ?",
+                late.stream().map(row -> new Object[]{name, row.getId()}).toList());
+        jdbcTemplate.batchUpdate("INSERT INTO outbox_gap (relay, outbox_id, skipped_at) VALUES (?, ?, LOCALTIMESTAMP)",
+                skipped.stream().map(id -> new Object[]{name, id}).toList());
+        if (!inOrder.isEmpty()) {
+            jdbcTemplate.update("UPDATE outbox_position SET last_id = ?, updated_at = ? WHERE relay = ?",
+                    inOrder.get(inOrder.size() - 1).getId(), Timestamp.from(Instant.now()), name);
+        }
+        published.increment(batch.size());
+        return batch.size();
+    }
+
+    /**
+     * Rows that have turned up for ids this relay stepped over. Ids missing for longer
+     * than gapRetention are forgotten first.
+     */
+    private List<OutboxMessage> lateRows(Instant now) {
+        jdbcTemplate.update("DELETE FROM outbox_gap WHERE relay = ? AND skipped_at < ?",
+                name, Timestamp.from(now.minus(gapRetention)));
+        return jdbcTemplate.query(SELECT_GAPS_SQL, OutboxRelay::toMessage, name);
+    }
+
+    /**
+     * A relay starting for the first time creates its row just before the oldest row
+     * still retained. If two instances race to do so, the loser's batch fails on the
+     * primary key and it picks up on its next run.
+     */
+    private long lockPosition() {
+        List<Long> position = jdbcTemplate.queryForList(
+                "SELECT last_id FROM outbox_position WHERE relay = ? FOR UPDATE", Long.class, name);
+        if (!position.isEmpty()) {
+            return position.get(0);
+        }
+        Long oldest = jdbcTemplate.queryForObject("SELECT MIN(id) FROM outbox_event", Long.class);
+        long start = oldest == null ? 0 : oldest - 1;
+        jdbcTemplate.update("INSERT INTO outbox_position (relay, last_id, updated_at) VALUES (?, ?, ?)",
+                name, start, Timestamp.from(Instant.now()));
+        return start;
+    }
+
+    private List<OutboxMessage> upToFirstOpenGap(long position, List<OutboxMessage> rows, Instant now,
+                                                 List<Long> skipped) {
+        Instant settled = now.minus(gapTimeout);
+        long expected = position + 1;
+        int end = 0;
+        for (OutboxMessage row : rows) {
+            if (row.getId() != expected && row.getCreatedAt().isAfter(settled)) {
+                break;
+            }
+            for (long id = expected; id < row.getId(); id++) {
+                skipped.add(id);
+            }
+            expected = row.getId() + 1;
+            end++;
+        }
+        return rows.subList(0, end);
+    }
+
+    private static OutboxMessage toMessage(ResultSet rs, int rowNum) throws SQLException {
+        return new OutboxMessage(rs.getLong("id"), rs.getString("event_type"), rs.getLong("card_id"),
+                rs.getString("payload"), rs.getTimestamp("created_at").toInstant());
+    }
+}
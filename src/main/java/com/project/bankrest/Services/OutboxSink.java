@@ -0,0 +1,14 @@
+package com.project.bankrest.Services;
+
+import com.project.bankrest.DTO.OutboxMessage;
+
+import java.util.List;
+
+/**
+ * Destination of the change feed. A batch counts as delivered once publish returns;
+ * throwing makes the relay retry it on its next run, so delivery is at least once.
+ */
+public interface OutboxSink {
+
+    void publish(List<OutboxMessage> messages) throws Exception;
+}
@@ -0,0 +1,147 @@
+package com.project.bankrest.Services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.project.bankrest.Event.CardBulkCreatedEvent;
+import com.project.bankrest.Event.CardEvent;
+import com.project.bankrest.Event.CardStatusBulkEvent;
+import com.project.bankrest.Event.CardTransferEvent;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Records every card change as an outbox row in the transaction that made it, so a
+ * row exists if and only if the change committed. Rows are collected per transaction
+ * and inserted in one batch just before commit; this also keeps the id gap between
+ * allocation and commit short, which OutboxRelay relies on. Outside a transaction
+ * they are inserted straight away. Payloads leave out the balance: the feed and the
+ * file sink are not encrypted like the cards table.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "bankrest.outbox.enabled", havingValue = "true", matchIfMissing = true)
+public class OutboxWriter {
+
+    public static final String CARD_CREATED = "CARD_CREATED";
+    public static final String CARD_UPDATED = "CARD_UPDATED";
+    public static final String CARD_STATUS_CHANGED = "CARD_STATUS_CHANGED";
+    public static final String CARD_DELETED = "CARD_DELETED";
+    public static final String TRANSFER_COMPLETED = "TRANSFER_COMPLETED";
+
+    private static final String INSERT_SQL =
+            "INSERT INTO outbox_event (event_type, card_id, payload, created_at) VALUES (?, ?, ?, LOCALTIMESTAMP)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    @EventListener
+    public void onCardEvent(CardEvent event) {
+        String type = switch (event.getType()) {
+            case CREATED -> CARD_CREATED;
+            case DELETED -> CARD_DELETED;
+            case UPDATED -> event.getPreviousStatus() != null && event.getPreviousStatus() != event.getStatus()
+                    ? CARD_STATUS_CHANGED
+                    : CARD_UPDATED;
+        };
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("cardId", event.getCardId());
+        payload.put("userId", event.getUserId());
+        payload.put("status", event.getStatus());
+        payload.put("previousStatus", event.getPreviousStatus());
+        payload.put("version", event.getVersion());
+        record(type, event.getCardId(), payload);
+    }
+
+    @EventListener
+    public void onCardBulkCreatedEvent(CardBulkCreatedEvent event) {
+        for (int i = 0; i < event.getCardIds().size(); i++) {
+            Long cardId = event.getCardIds().get(i);
+            Map<String, Object> payload = new LinkedHashMap<>();
+            payload.put("cardId", cardId);
+            payload.put("userId", event.getUserIds().get(i));
+            payload.put("status", event.getStatus());
+            record(CARD_CREATED, cardId, payload);
+        }
+    }
+
+    @EventListener
+    public void onCardStatusBulkEvent(CardStatusBulkEvent event) {
+        for (Long cardId : event.getCardIds()) {
+            Map<String, Object> payload = new LinkedHashMap<>();
+            payload.put("cardId", cardId);
+            payload.put("status", event.getStatus());
+            record(CARD_STATUS_CHANGED, cardId, payload);
+        }
+    }
+
+    @EventListener
+    public void onCardTransferEvent(CardTransferEvent event) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("fromCardId", event.getFromCardId());
+        payload.put("toCardId", event.getToCardId());
+        payload.put("amount", event.getAmount());
+        record(TRANSFER_COMPLETED, event.getFromCardId(), payload);
+    }
+
+    private void record(String type, Long cardId, Map<String, Object> payload) {
+        Object[] row = {type, cardId, toJson(payload)};
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            insert(Collections.singletonList(row));
+            return;
+        }
+        pendingRows().add(row);
+    }
+
+    /**
+     * Looked up among the current transaction's synchronizations rather than bound as a
+     * resource, so a REQUIRES_NEW transaction started inside gets its own rows.
+     */
+    private List<Object[]> pendingRows() {
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof PendingRows pending) {
+                return pending.rows;
+            }
+        }
+        PendingRows pending = new PendingRows();
+        TransactionSynchronizationManager.registerSynchronization(pending);
+        return pending.rows;
+    }
+
+    /**
+     * created_at comes from the database clock, the same one OutboxRelay measures gaps
+     * against, so a writer with a clock running behind cannot make a gap look settled.
+     */
+    private void insert(List<Object[]> rows) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+    }
+
+    private String toJson(Map<String, Object> payload) {
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Outbox payload not serializable", e);
+        }
+    }
+
+    private class PendingRows implements TransactionSynchronization {
+        private final List<Object[]> rows = new ArrayList<>();
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            if (!rows.isEmpty()) {
+                insert(rows);
+            }
+        }
+    }
+}
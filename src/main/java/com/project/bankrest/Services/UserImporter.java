@@ -0,0 +1,295 @@
+package com.project.bankrest.Services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.project.bankrest.DTO.SignupRequest;
+import com.project.bankrest.DTO.UserImportReport;
+import com.project.bankrest.Entity.Role;
+import com.project.bankrest.Event.UserEvent;
+import com.project.bankrest.Repository.SequenceIdAllocator;
+import com.project.bankrest.Repository.UserRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Imports users from a CSV (username,password,name with a header line) or NDJSON
+ * stream. The input is read line by line and handled in chunks: rows are validated,
+ * deduplicated, checked against existing usernames with one query, hashed on a
+ * fixed-size pool and written with one JDBC batch, each chunk in its own
+ * transaction. Only the current chunk and the first maxReportedErrors errors are
+ * held in memory, whatever the size of the input. Ids come from users_seq in blocks
+ * of 50, as Hibernate takes them.
+ */
+@Slf4j
+@Service
+public class UserImporter {
+
+    public enum Format {
+        CSV, NDJSON
+    }
+
+    private static final String INSERT_SQL = "INSERT INTO users (id, username, password, name, role) VALUES (?, ?, ?, ?, ?)";
+
+    private final UserRepository userRepository;
+    private final PasswordEncoder passwordEncoder;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final SequenceIdAllocator idAllocator;
+    private final int chunkSize;
+    private final int maxReportedErrors;
+    private final ExecutorService hashExecutor;
+
+    public UserImporter(UserRepository userRepository,
+                        PasswordEncoder passwordEncoder,
+                        JdbcTemplate jdbcTemplate,
+                        TransactionTemplate transactionTemplate,
+                        ObjectMapper objectMapper,
+                        ApplicationEventPublisher eventPublisher,
+                        SequenceIdAllocator idAllocator,
+                        @Value("${bankrest.users.import.chunk-size:500}") int chunkSize,
+                        @Value("${bankrest.users.import.max-reported-errors:1000}") int maxReportedErrors,
+                        @Value("${bankrest.users.import.hash-threads:0}") int hashThreads) {
+        this.userRepository = userRepository;
+        this.passwordEncoder = passwordEncoder;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.eventPublisher = eventPublisher;
+        this.idAllocator = idAllocator;
+        this.chunkSize = chunkSize;
+        this.maxReportedErrors = maxReportedErrors;
+        int threads = hashThreads > 0 ? hashThreads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger counter = new AtomicInteger();
+        this.hashExecutor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "user-import-hash-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        hashExecutor.shutdownNow();
+    }
+
+    public UserImportReport importUsers(InputStream input, Format format) {
+        UserImportReport report = new UserImportReport();
+        List<Row> chunk = new ArrayList<>(chunkSize);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            long lineNumber = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank() || (format == Format.CSV && lineNumber == 1)) {
+                    continue;
+                }
+                report.setTotal(report.getTotal() + 1);
+                Row row;
+                try {
+                    row = parse(line, lineNumber, format);
+                } catch (IllegalArgumentException e) {
+                    reject(report, lineNumber, null, e.getMessage());
+                    continue;
+                }
+                chunk.add(row);
+                if (chunk.size() == chunkSize) {
+                    importChunk(chunk, report);
+                    chunk.clear();
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (!chunk.isEmpty()) {
+            importChunk(chunk, report);
+        }
+        log.info("User import: {} rows, {} imported, {} rejected", report.getTotal(), report.getImported(), report.getFailed());
+        return report;
+    }
+
+    private void importChunk(List<Row> chunk, UserImportReport report) {
+        List<Row> candidates = new ArrayList<>(chunk.size());
+        Set<String> seen = new HashSet<>();
+        for (Row row : chunk) {
+            String error = validate(row);
+            if (error != null) {
+                reject(report, row.line(), row.username(), error);
+            } else if (!seen.add(row.username())) {
+                reject(report, row.line(), row.username(), "Duplicate username in file.");
+            } else {
+                candidates.add(row);
+            }
+        }
+        if (candidates.isEmpty()) {
+            return;
+        }
+
+        Set<String> existing = userRepository.findExistingUsernames(seen);
+        List<Row> fresh = new ArrayList<>(candidates.size());
+        for (Row row : candidates) {
+            if (existing.contains(row.username())) {
+                reject(report, row.line(), row.username(), "Username already exists.");
+            } else {
+                fresh.add(row);
+            }
+        }
+        if (fresh.isEmpty()) {
+            return;
+        }
+
+        List<Object[]> rows = hash(fresh);
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+                rows.forEach(this::publishCreated);
+            });
+            report.setImported(report.getImported() + rows.size());
+        } catch (DataIntegrityViolationException e) {
+            // someone took one of the names since the check; find out which row by row
+            for (int i = 0; i < rows.size(); i++) {
+                Object[] values = rows.get(i);
+                try {
+                    transactionTemplate.executeWithoutResult(status -> {
+                        jdbcTemplate.update(INSERT_SQL, values);
+                        publishCreated(values);
+                    });
+                    report.setImported(report.getImported() + 1);
+                } catch (DataIntegrityViolationException rowFailure) {
+                    if (!UsernameTakenException.isCause(rowFailure)) {
+                        throw rowFailure;
+                    }
+                    reject(report, fresh.get(i).line(), fresh.get(i).username(), "Username already exists.");
+                }
+            }
+        }
+    }
+
+    private void publishCreated(Object[] values) {
+        eventPublisher.publishEvent(new UserEvent(UserEvent.Type.CREATED, (Long) values[0], Role.USER, null));
+    }
+
+    private List<Object[]> hash(List<Row> rows) {
+        List<Future<String>> hashes = new ArrayList<>(rows.size());
+        for (Row row : rows) {
+            hashes.add(hashExecutor.submit(() -> passwordEncoder.encode(row.password())));
+        }
+        List<Long> ids = idAllocator.allocate("users_seq", rows.size());
+        List<Object[]> values = new ArrayList<>(rows.size());
+        try {
+            for (int i = 0; i < rows.size(); i++) {
+                Row row = rows.get(i);
+                values.add(new Object[]{ids.get(i), row.username(), hashes.get(i).get(), row.name(), Role.USER.name()});
+            }
+        } catch (InterruptedException e) {
+            hashes.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("User import interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+        return values;
+    }
+
+    private static String validate(Row row) {
+        if (row.username() == null || row.username().isBlank()) {
+            return "Username is required.";
+        }
+        if (row.username().length() > 255 || (row.name() != null && row.name().length() > 255)) {
+            return "Username and name must be at most 255 characters.";
+        }
+        if (row.password() == null || row.password().length() < 8) {
+            return "Password must contain at least 8 letters.";
+        }
+        return null;
+    }
+
+    private void reject(UserImportReport report, long line, String username, String message) {
+        report.setFailed(report.getFailed() + 1);
+        if (report.getErrors().size() < maxReportedErrors) {
+            report.getErrors().add(new UserImportReport.RowError(line, username, message));
+        }
+    }
+
+    private Row parse(String line, long lineNumber, Format format) {
+        if (format == Format.NDJSON) {
+            try {
+                SignupRequest request = objectMapper.readValue(line, SignupRequest.class);
+                return new Row(lineNumber, trim(request.getUsername()), request.getPassword(), trim(request.getName()));
+            } catch (JsonProcessingException e) {
+                throw new IllegalArgumentException("Malformed JSON.");
+            }
+        }
+        List<String> fields = splitCsv(line);
+        if (fields.size() < 2 || fields.size() > 3) {
+            throw new IllegalArgumentException("Expected username,password,name.");
+        }
+        return new Row(lineNumber, trim(fields.get(0)), fields.get(1), fields.size() == 3 ? trim(fields.get(2)) : null);
+    }
+
+    /**
+     * RFC 4180 fields on a single line: commas separate, double quotes enclose a field
+     * and "" inside quotes is a literal quote.
+     */
+    static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted field.");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private static String trim(String value) {
+        return value == null ? null : value.trim();
+    }
+
+    private record Row(long line, String username, String password, String name) {
+    }
+}
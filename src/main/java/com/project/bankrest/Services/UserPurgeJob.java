@@ -0,0 +1,77 @@
+package com.project.bankrest.Services;
+
+import com.project.bankrest.DTO.CardOwnershipView;
+import com.project.bankrest.Event.CardEvent;
+import com.project.bankrest.Repository.CardRepository;
+import com.project.bankrest.Repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Physically removes users soft-deleted longer than the retention period, together
+ * with their cards. Works through at most maxBatches chunks of batchSize users per
+ * run, each in its own transaction, oldest deletions first.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class UserPurgeJob {
+
+    private final UserRepository userRepository;
+    private final CardRepository cardRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${bankrest.users.purge.retention:P30D}")
+    private Duration retention = Duration.ofDays(30);
+
+    @Value("${bankrest.users.purge.batch-size:200}")
+    private int batchSize = 200;
+
+    @Value("${bankrest.users.purge.max-batches:50}")
+    private int maxBatches = 50;
+
+    @Scheduled(fixedDelayString = "${bankrest.users.purge.interval:PT6H}",
+            initialDelayString = "${bankrest.users.purge.initial-delay:PT5M}")
+    public void purgeDeletedUsers() {
+        purge(Instant.now().minus(retention));
+    }
+
+    public long purge(Instant cutoff) {
+        long purged = 0;
+        for (int batch = 0; batch < maxBatches; batch++) {
+            Integer count = transactionTemplate.execute(status -> {
+                List<Long> userIds = userRepository.findDeletedIdsBefore(cutoff, batchSize);
+                if (userIds.isEmpty()) {
+                    return 0;
+                }
+                List<CardOwnershipView> cards = cardRepository.findOwnershipByUserIdIn(userIds);
+                if (!cards.isEmpty()) {
+                    cardRepository.deleteByUserIdIn(userIds);
+                    cards.forEach(card -> eventPublisher.publishEvent(CardEvent.deleted(card.getId(), card.getUserId())));
+                }
+                return userRepository.purgeByIdIn(userIds);
+            });
+            if (count == null || count == 0) {
+                break;
+            }
+            purged += count;
+            if (count < batchSize) {
+                break;
+            }
+        }
+        if (purged > 0) {
+            log.info("Purged {} deleted users", purged);
+        }
+        return purged;
+    }
+}
@@ -1,70 +1,87 @@
 package com.project.bankrest.Services;
 
 import com.project.bankrest.DTO.SignupRequest;
+import com.project.bankrest.DTO.UserCardStatusCount;
+import com.project.bankrest.DTO.UserDTO;
+import com.project.bankrest.DTO.UserSearchPage;
+import com.project.bankrest.DTO.UserSearchResult;
+import com.project.bankrest.Entity.CardStatus;
 import com.project.bankrest.Entity.Role;
 import com.project.bankrest.Entity.User;
+import com.project.bankrest.Event.CardStatusBulkEvent;
+import com.project.bankrest.Event.UserEvent;
+import com.project.bankrest.Repository.CardRepository;
 import com.project.bankrest.Repository.UserRepository;
 import jakarta.persistence.EntityManager;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.data.domain.Sort;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
 @Service
 @RequiredArgsConstructor
+@Timed("bankrest.service")
 public class UserService {
 
+    private static final int MAX_SEARCH_PAGE_SIZE = 100;
+
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
-    private final JdbcTemplate jdbcTemplate;
     private final EntityManager entityManager;
+    private final CardRepository cardRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
+    @Transactional(readOnly = true)
     public List<User> getAllUsers() {
         entityManager.clear();
         return userRepository.findAll();
     }
 
+    /**
+     * Soft delete: the row is flagged and hidden from every entity query, and the
+     * user's cards are blocked so nothing can be moved into or out of them. Ids stay
+     * stable; UserPurgeJob removes the rows once the retention period has passed.
+     */
     @Transactional
     public void deleteUser(Long userId) {
-        userRepository.deleteById(userId);
-        reindexUserIds();
-    }
-
-    @Transactional
-    public void reindexUserIds() {
-        List<User> users = userRepository.findAllOrderByIdAsc();
-
-        long tempId = -1;
-        for (User user : users) {
-            userRepository.updateUserId(user.getId(), tempId);
-            tempId--;
+        if (userRepository.softDeleteById(userId, Instant.now()) == 0) {
+            return;
         }
-
-        List<User> tempUsers = userRepository.findAllOrderByIdAsc();
-
-        long newId = 1;
-        for (User user : tempUsers) {
-            userRepository.updateUserId(user.getId(), newId);
-            newId++;
+        List<Long> cardIds = cardRepository.findIdsByUserId(userId);
+        if (!cardIds.isEmpty()) {
+            cardRepository.updateStatusByIdIn(cardIds, CardStatus.BLOCKED);
+            eventPublisher.publishEvent(new CardStatusBulkEvent(cardIds, CardStatus.BLOCKED));
         }
-
-        resetSequence();
+        eventPublisher.publishEvent(new UserEvent(UserEvent.Type.DELETED, userId, null, null));
     }
+
+    @Transactional(readOnly = true)
     public User getUserById(Long id) {
         return userRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("User not found"));
     }
-    private void resetSequence() {
-        String sql = "SELECT setval(pg_get_serial_sequence('users', 'id'), COALESCE((SELECT MAX(id) FROM users), 1), true)";
-        jdbcTemplate.execute(sql);
-    }
 
+    /**
+     * Read and write share one read-write transaction, so the row comes from the
+     * primary rather than a possibly lagging replica, and previousRole is the role
+     * that is actually being replaced.
+     */
+    @Transactional
     public User updateUser(Long id, User updatedUser) {
         User existingUser = userRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("User not found"));
@@ -76,19 +93,24 @@ public class UserService {
             existingUser.setPassword(passwordEncoder.encode(updatedUser.getPassword()));
         }
 
+        Role previousRole = existingUser.getRole();
         if (updatedUser.getRole() != null) {
             existingUser.setRole(updatedUser.getRole());
         }
 
-        return userRepository.save(existingUser);
+        User saved = userRepository.save(existingUser);
+        eventPublisher.publishEvent(new UserEvent(UserEvent.Type.UPDATED, saved.getId(), saved.getRole(), previousRole));
+        return saved;
     }
 
 
+    /**
+     * No lookup before the insert: the unique index on username is the check, so two
+     * concurrent signups for the same name cannot both succeed, and the common case
+     * costs one statement.
+     */
     public void register(SignupRequest request) {
-        if (userRepository.findByUsername(request.getUsername()).isPresent()) {
-            throw new RuntimeException("Username already exists.");
-        }
-        else if(request.getPassword().length() < 8){
+        if (request.getPassword() == null || request.getPassword().length() < 8) {
             throw new IllegalArgumentException("Password must contain at least 8 letters.");
         }
 
@@ -99,8 +121,9 @@ public class UserService {
                 .role(Role.USER)
                 .build();
 
-        userRepository.save(user);
+        insertUnique(user);
     }
+    @Transactional(readOnly = true)
     public Page<User> getUsers(String search, int page, int size) {
         Pageable pageable = PageRequest.of(page, size);
         if (search != null && !search.isEmpty()) {
@@ -109,15 +132,90 @@ public class UserService {
         return userRepository.findAll(pageable);
     }
 
-    public User addUser(User user) {
-        if (userRepository.existsByUsername(user.getUsername())) {
-            throw new RuntimeException("Username already exists.");
+    /**
+     * Users with their card counts per status. The counts for the whole page come
+     * from one grouped query; no Card is loaded.
+     */
+    @Transactional(readOnly = true)
+    public Page<UserDTO> getUsersWithCardStats(int page, int size) {
+        Page<User> users = userRepository.findAll(PageRequest.of(page, size, Sort.by("id")));
+        List<Long> ids = users.map(User::getId).getContent();
+        Map<Long, Map<CardStatus, Long>> counts = new HashMap<>();
+        if (!ids.isEmpty()) {
+            for (UserCardStatusCount row : cardRepository.countByUserIdInGroupByStatus(ids)) {
+                counts.computeIfAbsent(row.getUserId(), id -> new EnumMap<>(CardStatus.class))
+                        .put(row.getStatus(), row.getCount());
+            }
         }
+        return users.map(user -> {
+            Map<CardStatus, Long> byStatus = counts.getOrDefault(user.getId(), Map.of());
+            return UserDTO.builder()
+                    .id(user.getId())
+                    .name(user.getName())
+                    .username(user.getUsername())
+                    .role(user.getRole())
+                    .CardCount((int) byStatus.values().stream().mapToLong(Long::longValue).sum())
+                    .cardsByStatus(byStatus)
+                    .build();
+        });
+    }
+
+    /**
+     * Ranked substring search for the admin user list, paged by an opaque cursor
+     * (rank and id of the last row) instead of an offset, so every page costs the
+     * same and no count query runs.
+     */
+    @Transactional(readOnly = true)
+    public UserSearchPage searchUsers(String query, String cursor, int size) {
+        String term = query == null ? "" : query.trim().toLowerCase(Locale.ROOT);
+        if (term.isEmpty()) {
+            throw new IllegalArgumentException("Search query must not be empty.");
+        }
+        int limit = Math.min(Math.max(size, 1), MAX_SEARCH_PAGE_SIZE);
+
+        int afterRank = Integer.MAX_VALUE;
+        long afterId = 0;
+        if (cursor != null && !cursor.isEmpty()) {
+            String[] parts = cursor.split(":");
+            try {
+                afterRank = Integer.parseInt(parts[0]);
+                afterId = Long.parseLong(parts[1]);
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid cursor.");
+            }
+        }
+
+        List<UserSearchResult> rows = userRepository.searchRanked(term, afterRank, afterId, limit + 1);
+        if (rows.size() <= limit) {
+            return new UserSearchPage(rows, null);
+        }
+        List<UserSearchResult> items = rows.subList(0, limit);
+        UserSearchResult last = items.get(limit - 1);
+        return new UserSearchPage(new ArrayList<>(items), last.getRank() + ":" + last.getId());
+    }
 
+    public User addUser(User user) {
         if (user.getRole() == null) {
             user.setRole(Role.USER);
         }
 
-        return userRepository.save(user);
+        return insertUnique(user);
+    }
+
+    private User insertUnique(User user) {
+        if (user.getUsername() == null || user.getUsername().isBlank()) {
+            throw new IllegalArgumentException("Username is required.");
+        }
+        User saved;
+        try {
+            saved = userRepository.saveAndFlush(user);
+        } catch (DataIntegrityViolationException e) {
+            if (UsernameTakenException.isCause(e)) {
+                throw new UsernameTakenException(e);
+            }
+            throw e;
+        }
+        eventPublisher.publishEvent(new UserEvent(UserEvent.Type.CREATED, saved.getId(), saved.getRole(), null));
+        return saved;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,35 @@
+package com.project.bankrest.Services;
+
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.sql.SQLException;
+import java.util.Locale;
+
+/**
+ * The insert hit the unique index on live usernames. Still an IllegalArgumentException,
+ * so callers that only tell valid from invalid input keep working; those that answer
+ * 409 for this and 400 for other invalid input catch it first.
+ */
+public class UsernameTakenException extends IllegalArgumentException {
+
+    private static final String UNIQUE_VIOLATION = "23505";
+
+    public UsernameTakenException(Throwable cause) {
+        super("Username already exists.", cause);
+    }
+
+    /**
+     * PostgreSQL reports the index by name (uq_users_username_live, or users_username_key
+     * before changelog 010); H2 reports its unnamed constraint together with the column.
+     */
+    static boolean isCause(DataIntegrityViolationException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sql && UNIQUE_VIOLATION.equals(sql.getSQLState())) {
+                String message = String.valueOf(sql.getMessage()).toLowerCase(Locale.ROOT);
+                return message.contains("uq_users_username") || message.contains("users_username_key")
+                        || message.contains("users(username");
+            }
+        }
+        return false;
+    }
+}
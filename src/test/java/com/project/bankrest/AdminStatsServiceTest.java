@@ -0,0 +1,130 @@
+package com.project.bankrest;
+
+import com.project.bankrest.DTO.AdminStats;
+import com.project.bankrest.Entity.Card;
+import com.project.bankrest.Entity.CardStatus;
+import com.project.bankrest.Entity.Role;
+import com.project.bankrest.Entity.User;
+import com.project.bankrest.Event.CardBulkCreatedEvent;
+import com.project.bankrest.Event.CardEvent;
+import com.project.bankrest.Event.CardStatusBulkEvent;
+import com.project.bankrest.Event.UserEvent;
+import com.project.bankrest.Repository.CardRepository;
+import com.project.bankrest.Repository.UserRepository;
+import com.project.bankrest.Security.EncryptionUtil;
+import com.project.bankrest.Services.AdminStatsService;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Import({AdminStatsService.class, EncryptionUtil.class})
+class AdminStatsServiceTest {
+
+    @Autowired
+    private AdminStatsService statsService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private CardRepository cardRepository;
+    @Autowired
+    private EntityManager entityManager;
+
+    private User owner;
+
+    @BeforeEach
+    void setUp() {
+        owner = userRepository.findByUsername("user").orElseThrow();
+        saveCard("4000000000000051", CardStatus.ACTIVE);
+        saveCard("4000000000000052", CardStatus.BLOCK_REQUESTED);
+        entityManager.flush();
+        entityManager.clear();
+        statsService.reconcile();
+    }
+
+    private Card saveCard(String number, CardStatus status) {
+        Card card = new Card();
+        card.setNumber(number);
+        card.setCvv("123");
+        card.setExpirationDate("2030-01");
+        card.setStatus(status);
+        card.setBalance(BigDecimal.ONE);
+        card.setUser(owner);
+        return cardRepository.save(card);
+    }
+
+    @Test
+    void reconcile_ShouldCountUsersByRoleAndCardsByStatus() {
+        AdminStats stats = statsService.getStats();
+
+        assertEquals(2, stats.getTotalUsers());
+        assertEquals(1, stats.getUsersByRole().get(Role.ADMIN));
+        assertEquals(1, stats.getUsersByRole().get(Role.USER));
+        assertEquals(2, stats.getTotalCards());
+        assertEquals(1, stats.getCardsByStatus().get(CardStatus.ACTIVE));
+        assertEquals(1, stats.getPendingBlockRequests());
+        assertNotNull(stats.getReconciledAt());
+        assertFalse(statsService.isStale());
+    }
+
+    @Test
+    void cardEvents_ShouldMoveCountersBetweenStatuses() {
+        Card card = cardRepository.findAll().stream()
+                .filter(c -> c.getStatus() == CardStatus.BLOCK_REQUESTED)
+                .findFirst().orElseThrow();
+        card.setStatus(CardStatus.BLOCKED);
+        statsService.onCardEvent(CardEvent.of(CardEvent.Type.UPDATED, card));
+
+        Card created = saveCard("4000000000000053", CardStatus.ACTIVE);
+        statsService.onCardEvent(CardEvent.of(CardEvent.Type.CREATED, created));
+
+        AdminStats stats = statsService.getStats();
+        assertEquals(3, stats.getTotalCards());
+        assertEquals(2, stats.getCardsByStatus().get(CardStatus.ACTIVE));
+        assertEquals(1, stats.getCardsByStatus().get(CardStatus.BLOCKED));
+        assertEquals(0, stats.getPendingBlockRequests());
+        assertFalse(statsService.isStale());
+    }
+
+    @Test
+    void bulkCreatedEvent_ShouldAddCardsToTheirStatus() {
+        statsService.onCardBulkCreatedEvent(
+                new CardBulkCreatedEvent(List.of(101L, 102L, 103L), List.of(7L, 7L, 8L), CardStatus.BLOCKED));
+
+        AdminStats stats = statsService.getStats();
+        assertEquals(5, stats.getTotalCards());
+        assertEquals(3, stats.getCardsByStatus().get(CardStatus.BLOCKED));
+        assertFalse(statsService.isStale());
+    }
+
+    @Test
+    void userEvents_ShouldMoveCountersBetweenRoles() {
+        statsService.onUserEvent(new UserEvent(UserEvent.Type.CREATED, 10L, Role.USER, null));
+        statsService.onUserEvent(new UserEvent(UserEvent.Type.UPDATED, 10L, Role.MANAGER, Role.USER));
+
+        AdminStats stats = statsService.getStats();
+        assertEquals(3, stats.getTotalUsers());
+        assertEquals(1, stats.getUsersByRole().get(Role.USER));
+        assertEquals(1, stats.getUsersByRole().get(Role.MANAGER));
+    }
+
+    @Test
+    void changesWithoutPreviousValue_ShouldMarkStaleUntilReconciled() {
+        statsService.onCardStatusBulkEvent(new CardStatusBulkEvent(List.of(1L), CardStatus.BLOCKED));
+        assertTrue(statsService.isStale());
+
+        statsService.reconcileIfStale();
+        assertFalse(statsService.isStale());
+
+        statsService.onUserEvent(new UserEvent(UserEvent.Type.DELETED, owner.getId(), null, null));
+        assertTrue(statsService.isStale());
+    }
+}
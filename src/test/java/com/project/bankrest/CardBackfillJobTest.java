@@ -0,0 +1,116 @@
+package com.project.bankrest;
+
+import com.project.bankrest.Entity.Card;
+import com.project.bankrest.Entity.CardStatus;
+import com.project.bankrest.Entity.User;
+import com.project.bankrest.Repository.CardRepository;
+import com.project.bankrest.Repository.UserRepository;
+import com.project.bankrest.Security.EncryptionUtil;
+import com.project.bankrest.Services.CardBackfillJob;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DataJpaTest(properties = "bankrest.cards.backfill.batch-size=2")
+@Import({CardBackfillJob.class, EncryptionUtil.class})
+class CardBackfillJobTest {
+
+    @Autowired
+    private CardBackfillJob backfillJob;
+    @Autowired
+    private CardRepository cardRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private EncryptionUtil encryptionUtil;
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    void backfillExpiryMonth_ShouldFillLegacyRowsInChunks() {
+        User owner = userRepository.findByUsername("user").orElseThrow();
+        String[] dates = {"01/26", "2027-02", "03/28", "not a date"};
+        for (int i = 0; i < dates.length; i++) {
+            Card card = new Card();
+            card.setNumber("400000000000010" + i);
+            card.setCvv("123");
+            card.setExpirationDate(dates[i]);
+            card.setStatus(CardStatus.ACTIVE);
+            card.setBalance(BigDecimal.ONE);
+            card.setUser(owner);
+            cardRepository.save(card);
+        }
+        entityManager.flush();
+        jdbcTemplate.update("UPDATE cards SET expiry_month = NULL");
+        entityManager.clear();
+
+        assertEquals(3, backfillJob.backfillExpiryMonth());
+        entityManager.flush();
+
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM cards WHERE expiry_month IS NULL", Integer.class));
+        assertEquals(202601, jdbcTemplate.queryForObject(
+                "SELECT MIN(expiry_month) FROM cards", Integer.class));
+    }
+
+    @Test
+    void backfillNumberHash_ShouldHashLegacyRows() {
+        User owner = userRepository.findByUsername("user").orElseThrow();
+        Card card = new Card();
+        card.setNumber("4000000000000200");
+        card.setCvv("123");
+        card.setExpirationDate("2027-02");
+        card.setStatus(CardStatus.ACTIVE);
+        card.setBalance(BigDecimal.ONE);
+        card.setUser(owner);
+        cardRepository.save(card);
+        entityManager.flush();
+        entityManager.clear();
+
+        assertEquals(1, backfillJob.backfillNumberHash());
+        entityManager.flush();
+
+        assertEquals(encryptionUtil.hash("4000000000000200"), jdbcTemplate.queryForObject(
+                "SELECT number_hash FROM cards WHERE id = ?", String.class, card.getId()));
+        assertEquals(0, backfillJob.backfillNumberHash());
+    }
+
+    @Test
+    void backfillNumberHash_DuplicateNumbers_ShouldHashFirstCardAndSkipTheRest() {
+        User owner = userRepository.findByUsername("user").orElseThrow();
+        // batch size 2: the third card meets its duplicate in an earlier chunk
+        String[] numbers = {"4000000000000300", "4000000000000300", "4000000000000300", "4000000000000301"};
+        Long[] ids = new Long[numbers.length];
+        for (int i = 0; i < numbers.length; i++) {
+            Card card = new Card();
+            card.setNumber(numbers[i]);
+            card.setCvv("123");
+            card.setExpirationDate("2027-02");
+            card.setStatus(CardStatus.ACTIVE);
+            card.setBalance(BigDecimal.ONE);
+            card.setUser(owner);
+            ids[i] = cardRepository.save(card).getId();
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        assertEquals(2, backfillJob.backfillNumberHash());
+        entityManager.flush();
+
+        assertEquals(encryptionUtil.hash("4000000000000300"), jdbcTemplate.queryForObject(
+                "SELECT number_hash FROM cards WHERE id = ?", String.class, ids[0]));
+        assertEquals(2, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM cards WHERE number_hash IS NULL", Integer.class));
+        assertEquals(encryptionUtil.hash("4000000000000301"), jdbcTemplate.queryForObject(
+                "SELECT number_hash FROM cards WHERE id = ?", String.class, ids[3]));
+    }
+}
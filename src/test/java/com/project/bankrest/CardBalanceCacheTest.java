@@ -0,0 +1,103 @@
+package com.project.bankrest;
+
+import com.project.bankrest.DTO.BalanceCacheStats;
+import com.project.bankrest.Entity.Card;
+import com.project.bankrest.Entity.CardStatus;
+import com.project.bankrest.Entity.User;
+import com.project.bankrest.Event.CardEvent;
+import com.project.bankrest.Services.CardBalanceCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CardBalanceCacheTest {
+
+    private CardBalanceCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new CardBalanceCache(100, Duration.ofMinutes(10));
+    }
+
+    private CardEvent event(CardEvent.Type type, Long cardId, Long userId, String balance, long version) {
+        User user = new User();
+        user.setId(userId);
+        Card card = new Card();
+        card.setId(cardId);
+        card.setUser(user);
+        card.setBalance(new BigDecimal(balance));
+        card.setStatus(CardStatus.ACTIVE);
+        card.setVersion(version);
+        return CardEvent.of(type, card);
+    }
+
+    @Test
+    void get_ShouldOnlyServeTheOwner() {
+        cache.put(1L, 10L, new BigDecimal("5.00"), 0);
+
+        assertEquals(new BigDecimal("5.00"), cache.get(1L, 10L).getBalance());
+        assertNull(cache.get(1L, 11L));
+        assertNull(cache.get(2L, 10L));
+    }
+
+    @Test
+    void committedWrite_ShouldReplaceOlderRead() {
+        cache.put(1L, 10L, new BigDecimal("100.00"), 3);
+
+        cache.onCardEvent(event(CardEvent.Type.UPDATED, 1L, 10L, "90.00", 4));
+
+        assertEquals(new BigDecimal("90.00"), cache.get(1L, 10L).getBalance());
+        assertEquals(4L, cache.get(1L, 10L).getVersion());
+    }
+
+    @Test
+    void lateRead_ShouldNotOverwriteNewerWrite() {
+        cache.onCardEvent(event(CardEvent.Type.UPDATED, 1L, 10L, "90.00", 4));
+
+        cache.put(1L, 10L, new BigDecimal("100.00"), 3);
+
+        assertEquals(new BigDecimal("90.00"), cache.get(1L, 10L).getBalance());
+    }
+
+    @Test
+    void ownerChange_ShouldMoveTheEntry() {
+        cache.put(1L, 10L, new BigDecimal("100.00"), 3);
+
+        cache.onCardEvent(event(CardEvent.Type.UPDATED, 1L, 20L, "100.00", 4));
+
+        assertNull(cache.get(1L, 10L));
+        assertEquals(new BigDecimal("100.00"), cache.get(1L, 20L).getBalance());
+    }
+
+    @Test
+    void delete_ShouldLeaveTombstoneThatOutranksReads() {
+        cache.put(1L, 10L, new BigDecimal("100.00"), 3);
+
+        cache.onCardEvent(event(CardEvent.Type.DELETED, 1L, 10L, "100.00", 3));
+        cache.put(1L, 10L, new BigDecimal("100.00"), 3);
+
+        assertNull(cache.get(1L, 10L));
+    }
+
+    @Test
+    void getStats_ShouldReportHitRateAndFootprint() {
+        cache.put(1L, 10L, BigDecimal.ONE, 0);
+        cache.put(2L, 10L, BigDecimal.TEN, 0);
+        cache.get(1L, 10L);
+        cache.get(1L, 10L);
+        cache.get(3L, 10L);
+
+        BalanceCacheStats stats = cache.getStats();
+
+        assertEquals(2, stats.getSize());
+        assertEquals(100, stats.getMaxSize());
+        assertEquals(2, stats.getHits());
+        assertEquals(1, stats.getMisses());
+        assertEquals(2.0 / 3, stats.getHitRate(), 1e-9);
+        assertTrue(stats.getEstimatedBytes() > 0);
+    }
+}
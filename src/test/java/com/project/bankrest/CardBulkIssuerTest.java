@@ -0,0 +1,81 @@
+package com.project.bankrest;
+
+import com.project.bankrest.DTO.BulkCreateCardsRequest;
+import com.project.bankrest.DTO.BulkCreateCardsResponse;
+import com.project.bankrest.DTO.CardResponse;
+import com.project.bankrest.Entity.CardStatus;
+import com.project.bankrest.Entity.User;
+import com.project.bankrest.Event.CardBulkCreatedEvent;
+import com.project.bankrest.Repository.CardRepository;
+import com.project.bankrest.Repository.SequenceIdAllocator;
+import com.project.bankrest.Repository.UserRepository;
+import com.project.bankrest.Security.EncryptionUtil;
+import com.project.bankrest.Services.CardBulkIssuer;
+import com.project.bankrest.Services.CardNumberIssuer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "bankrest.cards.bulk.batch-size=3")
+@RecordApplicationEvents
+@Import({CardBulkIssuer.class, CardNumberIssuer.class, SequenceIdAllocator.class, EncryptionUtil.class})
+class CardBulkIssuerTest {
+
+    @Autowired
+    private CardBulkIssuer cardBulkIssuer;
+    @Autowired
+    private CardRepository cardRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ApplicationEvents applicationEvents;
+
+    @Test
+    void issue_ShouldInsertEncryptedCardsForKnownUsersAcrossBatches() {
+        User owner = userRepository.findByUsername("user").orElseThrow();
+        BulkCreateCardsRequest request = new BulkCreateCardsRequest(
+                List.of(owner.getId(), 9_999L, owner.getId()), 4, "2030-01", CardStatus.BLOCKED, "250.50");
+
+        BulkCreateCardsResponse response = cardBulkIssuer.issue(request);
+
+        assertEquals(8, response.getRequested());
+        assertEquals(4, response.getCreated());
+        assertEquals(List.of(9_999L), response.getUnknownUserIds());
+
+        List<CardResponse> cards = cardRepository.findResponsesByUserId(owner.getId());
+        assertEquals(4, cards.size());
+        for (CardResponse card : cards) {
+            assertTrue(CardNumberIssuer.isLuhnValid(card.getNumber()), card.getNumber());
+            assertEquals("2030-01", card.getExpirationDate());
+            assertEquals(CardStatus.BLOCKED, card.getStatus());
+            assertEquals(0, new BigDecimal("250.50").compareTo(new BigDecimal(card.getBalance())));
+            assertEquals(3, card.getCvv().length());
+        }
+        assertEquals(4, cards.stream().map(CardResponse::getNumber).distinct().count());
+        assertEquals(4, cardRepository.findExpiringBeforeAfter(203002, CardStatus.EXPIRED, 0, 0L,
+                PageRequest.of(0, 10)).size());
+
+        List<CardBulkCreatedEvent> events = applicationEvents.stream(CardBulkCreatedEvent.class).toList();
+        assertEquals(List.of(3, 1), events.stream().map(event -> event.getCardIds().size()).toList());
+        assertEquals(cards.stream().map(CardResponse::getId).sorted().toList(),
+                events.stream().flatMap(event -> event.getCardIds().stream()).sorted().toList());
+        assertTrue(events.stream().allMatch(event -> event.getStatus() == CardStatus.BLOCKED
+                && event.getUserIds().stream().allMatch(owner.getId()::equals)));
+    }
+
+    @Test
+    void issue_ShouldRejectRequestsOverTheLimit() {
+        BulkCreateCardsRequest request = new BulkCreateCardsRequest(List.of(1L), 100_001, null, null, null);
+
+        assertThrows(IllegalArgumentException.class, () -> cardBulkIssuer.issue(request));
+    }
+}
@@ -0,0 +1,107 @@
+package com.project.bankrest;
+
+import com.project.bankrest.DTO.BulkStatusRequest;
+import com.project.bankrest.DTO.BulkStatusResponse;
+import com.project.bankrest.Entity.Card;
+import com.project.bankrest.Entity.CardStatus;
+import com.project.bankrest.Repository.CardRepository;
+import com.project.bankrest.Repository.UserRepository;
+import com.project.bankrest.Security.EncryptionUtil;
+import com.project.bankrest.Services.CardBalanceCache;
+import com.project.bankrest.Services.CardDirectory;
+import com.project.bankrest.Services.CardNumberIssuer;
+import com.project.bankrest.Services.CardService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs without the usual test transaction so that the competing status change and the
+ * bulk update commit on their own, as concurrent requests would.
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({CardService.class, CardNumberIssuer.class, CardBalanceCache.class, CardDirectory.class, EncryptionUtil.class,
+        SimpleMeterRegistry.class})
+class CardBulkStatusRaceTest {
+
+    @Autowired
+    private CardService cardService;
+    @Autowired
+    private CardRepository cardRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Card card;
+
+    @BeforeEach
+    void setUp() {
+        card = new Card();
+        card.setNumber("4000000000000077");
+        card.setCvv("123");
+        card.setExpirationDate("2028-05");
+        card.setStatus(CardStatus.ACTIVE);
+        card.setBalance(new BigDecimal("10.00"));
+        card.setUser(userRepository.findByUsername("user").orElseThrow());
+        card = cardRepository.save(card);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        cardRepository.deleteById(card.getId());
+    }
+
+    @Test
+    void bulkUpdate_WhenStatusChangesBeforeItsUpdate_ShouldReportUnchanged() throws Exception {
+        CountDownLatch changed = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> competitor = executor.submit(() -> new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                cardRepository.updateStatusByIdIn(List.of(card.getId()), CardStatus.BLOCKED);
+                changed.countDown();
+                try {
+                    commit.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+            assertTrue(changed.await(5, TimeUnit.SECONDS));
+
+            Future<BulkStatusResponse> bulk = executor.submit(() -> cardService.updateCardStatuses(
+                    new BulkStatusRequest(List.of(card.getId()), CardStatus.ACTIVE, CardStatus.EXPIRED)));
+            Thread.sleep(200);
+            commit.countDown();
+            competitor.get(5, TimeUnit.SECONDS);
+
+            BulkStatusResponse response = bulk.get(5, TimeUnit.SECONDS);
+            assertEquals(0, response.getUpdated());
+            assertEquals(BulkStatusResponse.Outcome.UNCHANGED, response.getResults().get(card.getId()));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(CardStatus.BLOCKED, cardRepository.findById(card.getId()).orElseThrow().getStatus());
+    }
+}
@@ -0,0 +1,188 @@
+package com.project.bankrest;
+
+import com.project.bankrest.Controller.CardController;
+import com.project.bankrest.DTO.BulkStatusRequest;
+import com.project.bankrest.DTO.CardResponse;
+import com.project.bankrest.Entity.Card;
+import com.project.bankrest.Entity.CardStatus;
+import com.project.bankrest.Entity.User;
+import com.project.bankrest.Repository.CardRepository;
+import com.project.bankrest.Repository.UserRepository;
+import com.project.bankrest.Security.EncryptionUtil;
+import com.project.bankrest.Services.CardBalanceCache;
+import com.project.bankrest.Services.CardDirectory;
+import com.project.bankrest.Services.CardNumberIssuer;
+import com.project.bankrest.Services.CardService;
+import jakarta.persistence.EntityManager;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.test.context.transaction.TestTransaction;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@DataJpaTest
+@ActiveProfiles("querycount")
+@Import({CardService.class, CardNumberIssuer.class, CardBalanceCache.class, CardDirectory.class, EncryptionUtil.class,
+        SimpleMeterRegistry.class})
+class CardConditionalGetTest {
+
+    @Autowired
+    private CardService cardService;
+    @Autowired
+    private CardRepository cardRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private CardNumberIssuer cardNumberIssuer;
+    @MockitoSpyBean
+    private EncryptionUtil encryptionUtil;
+
+    private CardController cardController;
+    private Authentication authentication;
+    private Card card;
+
+    @BeforeEach
+    void setUp() {
+        User owner = userRepository.findByUsername("user").orElseThrow();
+        card = new Card();
+        card.setNumber("4000000000000101");
+        card.setCvv("123");
+        card.setExpirationDate("2028-05");
+        card.setStatus(CardStatus.ACTIVE);
+        card.setBalance(new BigDecimal("75.00"));
+        card.setUser(owner);
+        card = cardRepository.save(card);
+        // fills the pool, or waits for the startup refill, so that no background refill
+        // query lands in the counted statements
+        cardNumberIssuer.refill();
+        entityManager.flush();
+        entityManager.clear();
+
+        cardController = new CardController(cardService, null, null);
+        authentication = new UsernamePasswordAuthenticationToken(owner, null, owner.getAuthorities());
+    }
+
+    @AfterAll
+    static void writeReport() throws IOException {
+        QueryCounter.writeReport();
+    }
+
+    private WebRequest getRequest(String ifNoneMatch) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/cards");
+        if (ifNoneMatch != null) {
+            request.addHeader(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        }
+        return new ServletWebRequest(request, new MockHttpServletResponse());
+    }
+
+    private void startPoll() {
+        entityManager.flush();
+        entityManager.clear();
+        clearInvocations(encryptionUtil);
+        QueryCounter.reset();
+    }
+
+    @Test
+    void unchangedCardList_ShouldAnswer304WithoutDecrypting() {
+        String etag = cardController.getMyCards(null, PageRequest.of(0, 10), authentication, getRequest(null))
+                .getHeaders().getETag();
+        assertNotNull(etag);
+
+        startPoll();
+        ResponseEntity<Page<CardResponse>> response =
+                cardController.getMyCards(null, PageRequest.of(0, 10), authentication, getRequest(etag));
+
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+        assertNull(response.getBody());
+        verify(encryptionUtil, never()).decrypt(any());
+        QueryCounter.assertStatements("GET /api/cards/my (304)", 1, 0, 0, 0);
+    }
+
+    @Test
+    void unchangedBalance_ShouldAnswer304FromCacheWithoutQuerying() {
+        String etag = cardController.getBalance(card.getId(), authentication, getRequest(null))
+                .getHeaders().getETag();
+        assertNotNull(etag);
+
+        startPoll();
+        ResponseEntity<BigDecimal> response = cardController.getBalance(card.getId(), authentication, getRequest(etag));
+
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+        verify(encryptionUtil, never()).decrypt(any());
+        QueryCounter.assertStatements("GET /api/cards/{cardId}/balance (304)", 0, 0, 0, 0);
+    }
+
+    @Test
+    void changedCard_ShouldInvalidateETags() {
+        String listETag = cardController.getMyCards(null, PageRequest.of(0, 10), authentication, getRequest(null))
+                .getHeaders().getETag();
+        String balanceETag = cardController.getBalance(card.getId(), authentication, getRequest(null))
+                .getHeaders().getETag();
+
+        // the balance cache only sees the change once it has committed
+        TestTransaction.flagForCommit();
+        TestTransaction.end();
+        try {
+            cardService.updateCardStatus(card.getId(), CardStatus.BLOCKED);
+            TestTransaction.start();
+            startPoll();
+
+            assertEquals(HttpStatus.OK, cardController
+                    .getMyCards(null, PageRequest.of(0, 10), authentication, getRequest(listETag)).getStatusCode());
+            ResponseEntity<BigDecimal> balance =
+                    cardController.getBalance(card.getId(), authentication, getRequest(balanceETag));
+            assertEquals(HttpStatus.OK, balance.getStatusCode());
+            assertNotEquals(balanceETag, balance.getHeaders().getETag());
+        } finally {
+            if (!TestTransaction.isActive()) {
+                TestTransaction.start();
+            }
+            cardRepository.deleteById(card.getId());
+            TestTransaction.flagForCommit();
+        }
+    }
+
+    @Test
+    void bulkStatusUpdate_ShouldInvalidateListETagOnly() {
+        String listETag = cardController.getMyCards(null, PageRequest.of(0, 10), authentication, getRequest(null))
+                .getHeaders().getETag();
+        String balanceETag = cardController.getBalance(card.getId(), authentication, getRequest(null))
+                .getHeaders().getETag();
+
+        cardService.updateCardStatuses(new BulkStatusRequest(List.of(card.getId()), null, CardStatus.BLOCKED));
+        startPoll();
+
+        assertEquals(HttpStatus.OK, cardController
+                .getMyCards(null, PageRequest.of(0, 10), authentication, getRequest(listETag)).getStatusCode());
+        // a status change leaves the balance, and with it the balance ETag, as it was
+        ResponseEntity<BigDecimal> balance = cardController.getBalance(card.getId(), authentication, getRequest(balanceETag));
+        assertEquals(HttpStatus.NOT_MODIFIED, balance.getStatusCode());
+        assertEquals(balanceETag, balance.getHeaders().getETag());
+    }
+}
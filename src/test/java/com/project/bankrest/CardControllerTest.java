@@ -1,13 +1,22 @@
 package com.project.bankrest;
 
 import com.project.bankrest.Controller.CardController;
+import com.project.bankrest.DTO.BulkCreateCardsRequest;
+import com.project.bankrest.DTO.BulkCreateCardsResponse;
+import com.project.bankrest.DTO.BulkStatusRequest;
+import com.project.bankrest.DTO.BulkStatusResponse;
+import com.project.bankrest.DTO.CardBalanceView;
+import com.project.bankrest.DTO.CardListVersion;
 import com.project.bankrest.DTO.CardResponse;
 import com.project.bankrest.DTO.CreateCardRequest;
 import com.project.bankrest.DTO.TransferRequest;
 import com.project.bankrest.DTO.UpdateStatusRequest;
 import com.project.bankrest.Entity.Card;
+import com.project.bankrest.Entity.CardStatus;
 import com.project.bankrest.Entity.User;
+import com.project.bankrest.Services.CardBulkIssuer;
 import com.project.bankrest.Services.CardService;
+import com.project.bankrest.Services.CardStreamService;
 
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -18,9 +27,17 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.security.core.Authentication;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.math.BigDecimal;
 import java.util.Collections;
@@ -28,7 +45,10 @@ import java.util.List;
 import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
@@ -38,12 +58,26 @@ class CardControllerTest {
     @Mock
     private CardService cardService;
 
+    @Mock
+    private CardBulkIssuer cardBulkIssuer;
+
+    @Mock
+    private CardStreamService cardStreamService;
+
     @Mock
     private Authentication authentication;
 
     @InjectMocks
     private CardController cardController;
 
+    private WebRequest getRequest(String ifNoneMatch) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/cards");
+        if (ifNoneMatch != null) {
+            request.addHeader(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        }
+        return new ServletWebRequest(request, new MockHttpServletResponse());
+    }
+
     private User mockAuthentication(Long userId) {
         User user = new User();
         user.setId(userId);
@@ -75,7 +109,7 @@ class CardControllerTest {
     @Test
     void testUpdateCardStatus() {
         Long cardId = 10L;
-        String newStatus = "BLOCKED";
+        CardStatus newStatus = CardStatus.BLOCKED;
         UpdateStatusRequest request = new UpdateStatusRequest();
         request.setStatus(newStatus);
 
@@ -93,6 +127,48 @@ class CardControllerTest {
         verify(cardService, times(1)).updateCardStatus(cardId, newStatus);
     }
 
+    @Test
+    void testCreateCardsBulk() {
+        BulkCreateCardsRequest request = new BulkCreateCardsRequest(List.of(1L, 99L), 2, null, null, "100");
+        BulkCreateCardsResponse result = new BulkCreateCardsResponse(4, 2, List.of(99L));
+
+        when(cardBulkIssuer.issue(request)).thenReturn(result);
+
+        ResponseEntity<?> response = cardController.createCards(request);
+
+        assertEquals(HttpStatus.CREATED, response.getStatusCode());
+        assertEquals(result, response.getBody());
+    }
+
+    @Test
+    void testUpdateCardStatusesBulk() {
+        BulkStatusRequest request = new BulkStatusRequest(List.of(1L, 2L), null, CardStatus.BLOCKED);
+        BulkStatusResponse result = BulkStatusResponse.of(Map.of(
+                1L, BulkStatusResponse.Outcome.UPDATED,
+                2L, BulkStatusResponse.Outcome.NOT_FOUND));
+
+        when(cardService.updateCardStatuses(request)).thenReturn(result);
+
+        ResponseEntity<?> response = cardController.updateCardStatuses(request);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(result, response.getBody());
+        assertEquals(1, result.getUpdated());
+        assertEquals(1, result.getNotFound());
+    }
+
+    @Test
+    void testUpdateCardStatusesBulkBadRequest() {
+        BulkStatusRequest request = new BulkStatusRequest(null, null, CardStatus.BLOCKED);
+
+        when(cardService.updateCardStatuses(request))
+                .thenThrow(new IllegalArgumentException("Either cardIds or currentStatus must be provided."));
+
+        ResponseEntity<?> response = cardController.updateCardStatuses(request);
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    }
+
     @Test
     void testUpdateCard() {
         Long cardId = 10L;
@@ -126,14 +202,11 @@ class CardControllerTest {
 
     @Test
     void testGetAllCardsAdmin() {
-        Card card = new Card();
-        card.setId(1L);
-        card.setNumber("1111");
-
         CardResponse cardResponse = new CardResponse();
         cardResponse.setId(1L);
+        cardResponse.setNumber("1111");
 
-        when(cardService.getAllCards()).thenReturn(List.of(card));
+        when(cardService.getAllCards()).thenReturn(List.of(cardResponse));
 
         ResponseEntity<List<CardResponse>> response = cardController.getAllCards();
 
@@ -146,14 +219,9 @@ class CardControllerTest {
     @Test
     void testGetCardsByUserId() {
         Long requestedUserId = 5L;
-        User user = new User();
-        user.setId(requestedUserId);
 
-        Card card = new Card();
-        card.setId(1L);
-        card.setNumber("2222");
-        card.setUser(user);
-        card.setBalance(BigDecimal.TEN);
+        CardResponse card = new CardResponse(1L, "2222", "2028-05", CardStatus.ACTIVE, "123",
+                BigDecimal.TEN, requestedUserId, "Owner");
 
         when(cardService.getAllCardsByUserId(requestedUserId)).thenReturn(List.of(card));
 
@@ -162,6 +230,7 @@ class CardControllerTest {
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertNotNull(response.getBody());
         assertEquals(1, response.getBody().size());
+        assertEquals("10", response.getBody().get(0).getBalance());
         verify(cardService, times(1)).getAllCardsByUserId(requestedUserId);
     }
 
@@ -171,25 +240,78 @@ class CardControllerTest {
         Long userId = 50L;
         mockAuthentication(userId);
 
-        Card card = new Card();
+        CardResponse card = new CardResponse();
         card.setId(3L);
         card.setNumber("9999");
-        card.setBalance(BigDecimal.ZERO);
+        card.setBalance("0");
 
-        Page<Card> page = new PageImpl<>(List.of(card));
+        Page<CardResponse> page = new PageImpl<>(List.of(card));
         Pageable pageable = PageRequest.of(0, 10);
         String search = "9999";
 
+        when(cardService.getUserCardsVersion(userId)).thenReturn(new CardListVersion(1, 3, 0));
         when(cardService.getUserCards(eq(userId), eq(search), any(Pageable.class))).thenReturn(page);
 
-        ResponseEntity<Page<CardResponse>> response = cardController.getMyCards(search, pageable, authentication);
+        ResponseEntity<Page<CardResponse>> response = cardController.getMyCards(search, pageable, authentication, getRequest(null));
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertNotNull(response.getBody());
+        assertNotNull(response.getHeaders().getETag());
         assertEquals(1, response.getBody().getContent().size());
         verify(cardService, times(1)).getUserCards(eq(userId), eq(search), any(Pageable.class));
     }
 
+    @Test
+    void testGetMyCardsNotModified() {
+        Long userId = 50L;
+        mockAuthentication(userId);
+        Pageable pageable = PageRequest.of(0, 10);
+
+        when(cardService.getUserCardsVersion(userId)).thenReturn(new CardListVersion(1, 3, 0));
+        when(cardService.getUserCards(eq(userId), isNull(), any(Pageable.class))).thenReturn(Page.empty());
+        String etag = cardController.getMyCards(null, pageable, authentication, getRequest(null)).getHeaders().getETag();
+
+        ResponseEntity<Page<CardResponse>> response = cardController.getMyCards(null, pageable, authentication, getRequest(etag));
+
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+        assertEquals(etag, response.getHeaders().getETag());
+        verify(cardService, times(1)).getUserCards(eq(userId), isNull(), any(Pageable.class));
+    }
+
+    @Test
+    void testGetMyCardsChangedVersion() {
+        Long userId = 50L;
+        mockAuthentication(userId);
+        Pageable pageable = PageRequest.of(0, 10);
+
+        when(cardService.getUserCardsVersion(userId))
+                .thenReturn(new CardListVersion(1, 3, 0), new CardListVersion(1, 3, 1));
+        when(cardService.getUserCards(eq(userId), isNull(), any(Pageable.class))).thenReturn(Page.empty());
+        String etag = cardController.getMyCards(null, pageable, authentication, getRequest(null)).getHeaders().getETag();
+
+        ResponseEntity<Page<CardResponse>> response = cardController.getMyCards(null, pageable, authentication, getRequest(etag));
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertNotEquals(etag, response.getHeaders().getETag());
+    }
+
+    @Test
+    void testGetBlockRequests() {
+        CardResponse pending = new CardResponse();
+        pending.setId(7L);
+        pending.setStatus(CardStatus.BLOCK_REQUESTED);
+        Pageable pageable = PageRequest.of(0, 20);
+
+        when(cardService.getBlockRequests(pageable)).thenReturn(new PageImpl<>(List.of(pending), pageable, 1));
+
+        ResponseEntity<Page<CardResponse>> response = cardController.getBlockRequests(pageable);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertNotNull(response.getBody());
+        assertEquals(CardStatus.BLOCK_REQUESTED, response.getBody().getContent().get(0).getStatus());
+        verify(cardService, times(1)).getBlockRequests(pageable);
+    }
+
     @Test
     void testGetBalance() {
         Long cardId = 10L;
@@ -197,15 +319,59 @@ class CardControllerTest {
         BigDecimal expectedBalance = new BigDecimal("150.50");
         mockAuthentication(userId);
 
-        when(cardService.getCardBalance(cardId, userId)).thenReturn(expectedBalance);
+        when(cardService.getCardBalance(cardId, userId)).thenReturn(new CardBalanceView(expectedBalance, 4L));
 
-        ResponseEntity<BigDecimal> response = cardController.getBalance(cardId, authentication);
+        ResponseEntity<BigDecimal> response = cardController.getBalance(cardId, authentication, getRequest(null));
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertEquals(expectedBalance, response.getBody());
+        assertEquals("\"10-4\"", response.getHeaders().getETag());
         verify(cardService, times(1)).getCardBalance(cardId, userId);
     }
 
+    @Test
+    void testGetBalanceNotModified() {
+        Long cardId = 10L;
+        Long userId = 20L;
+        mockAuthentication(userId);
+
+        when(cardService.getCardBalance(cardId, userId)).thenReturn(new CardBalanceView(new BigDecimal("150.50"), 4L));
+
+        ResponseEntity<BigDecimal> response = cardController.getBalance(cardId, authentication, getRequest("\"10-4\""));
+
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+        assertEquals("\"10-4\"", response.getHeaders().getETag());
+        assertNull(response.getBody());
+    }
+
+    @Test
+    void testGetBalanceChangedSinceETag_ShouldReturnNewBalanceAndVersion() {
+        Long cardId = 10L;
+        Long userId = 20L;
+        mockAuthentication(userId);
+
+        when(cardService.getCardBalance(cardId, userId)).thenReturn(new CardBalanceView(new BigDecimal("90.00"), 5L));
+
+        ResponseEntity<BigDecimal> response = cardController.getBalance(cardId, authentication, getRequest("\"10-4\""));
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(new BigDecimal("90.00"), response.getBody());
+        assertEquals("\"10-5\"", response.getHeaders().getETag());
+    }
+
+    @Test
+    void testGetBalanceForeignCardSkipsETag() {
+        Long cardId = 10L;
+        Long userId = 20L;
+        mockAuthentication(userId);
+
+        when(cardService.getCardBalance(cardId, userId))
+                .thenThrow(new SecurityException("Access denied: Card does not belong to the user."));
+
+        assertThrows(SecurityException.class,
+                () -> cardController.getBalance(cardId, authentication, getRequest("\"10-4\"")));
+    }
+
     @Test
     void testCreateMyCard() {
         Long userId = 100L;
@@ -235,7 +401,7 @@ class CardControllerTest {
 
         Card updated = new Card();
         updated.setId(cardId);
-        updated.setStatus("BLOCK_REQUESTED");
+        updated.setStatus(CardStatus.BLOCK_REQUESTED);
 
         when(cardService.requestCardBlock(cardId, userId)).thenReturn(updated);
 
@@ -243,7 +409,7 @@ class CardControllerTest {
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertNotNull(response.getBody());
-        assertEquals("BLOCK_REQUESTED", response.getBody().getStatus());
+        assertEquals(CardStatus.BLOCK_REQUESTED, response.getBody().getStatus());
         verify(cardService, times(1)).requestCardBlock(cardId, userId);
     }
 
@@ -255,7 +421,7 @@ class CardControllerTest {
 
         Card updated = new Card();
         updated.setId(cardId);
-        updated.setStatus("ACTIVE");
+        updated.setStatus(CardStatus.ACTIVE);
 
         when(cardService.cancelCardBlockRequest(cardId, userId)).thenReturn(updated);
 
@@ -263,7 +429,7 @@ class CardControllerTest {
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertNotNull(response.getBody());
-        assertEquals("ACTIVE", response.getBody().getStatus());
+        assertEquals(CardStatus.ACTIVE, response.getBody().getStatus());
         verify(cardService, times(1)).cancelCardBlockRequest(cardId, userId);
     }
 
@@ -300,4 +466,48 @@ class CardControllerTest {
         assertEquals(errorMessage, response.getBody());
         verify(cardService, times(1)).transferMoney(req);
     }
+
+    @Test
+    void testTransferMoneyConcurrentChange_ShouldReturnConflict() {
+        TransferRequest req = new TransferRequest();
+        req.setFromCardId(1L);
+        req.setToCardId(2L);
+        req.setAmount(BigDecimal.TEN);
+
+        doThrow(new ObjectOptimisticLockingFailureException(Card.class, 1L))
+                .when(cardService).transferMoney(any(TransferRequest.class));
+
+        ResponseEntity<String> response = cardController.transferMoney(req);
+
+        assertEquals(HttpStatus.CONFLICT, response.getStatusCode());
+    }
+
+    @Test
+    void streamMyCards_ShouldSubscribeCurrentUser() {
+        mockAuthentication(7L);
+        SseEmitter emitter = new SseEmitter();
+        when(cardStreamService.subscribe(7L)).thenReturn(emitter);
+
+        assertEquals(emitter, cardController.streamMyCards(authentication));
+    }
+
+    @Test
+    void streamMyCards_WithoutUser_ShouldReturnUnauthorized() {
+        ResponseStatusException e = assertThrows(ResponseStatusException.class,
+                () -> cardController.streamMyCards(null));
+
+        assertEquals(HttpStatus.UNAUTHORIZED, e.getStatusCode());
+        verifyNoInteractions(cardStreamService);
+    }
+
+    @Test
+    void streamMyCards_NodeFull_ShouldReturnServiceUnavailable() {
+        mockAuthentication(7L);
+        when(cardStreamService.subscribe(7L)).thenThrow(new IllegalStateException("Too many open card streams."));
+
+        ResponseStatusException e = assertThrows(ResponseStatusException.class,
+                () -> cardController.streamMyCards(authentication));
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, e.getStatusCode());
+    }
 }
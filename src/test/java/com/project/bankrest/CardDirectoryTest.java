@@ -0,0 +1,175 @@
+package com.project.bankrest;
+
+import com.project.bankrest.DTO.CardOwnershipView;
+import com.project.bankrest.Entity.Card;
+import com.project.bankrest.Entity.CardStatus;
+import com.project.bankrest.Entity.User;
+import com.project.bankrest.Event.CardEvent;
+import com.project.bankrest.Event.CardStatusBulkEvent;
+import com.project.bankrest.Repository.CardRepository;
+import com.project.bankrest.Services.CardDirectory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class CardDirectoryTest {
+
+    @Mock
+    private CardRepository cardRepository;
+
+    private CardDirectory loadedDirectory(List<CardOwnershipView> cards) {
+        when(cardRepository.findOwnershipAfter(anyLong(), any(Pageable.class))).thenReturn(cards);
+        CardDirectory directory = new CardDirectory(cardRepository, true, 16);
+        directory.load();
+        return directory;
+    }
+
+    private CardEvent event(CardEvent.Type type, long cardId, long userId, CardStatus status) {
+        User user = new User();
+        user.setId(userId);
+        Card card = new Card();
+        card.setId(cardId);
+        card.setUser(user);
+        card.setStatus(status);
+        return CardEvent.of(type, card);
+    }
+
+    @Test
+    void load_ShouldAnswerOwnerAndStatusAcrossResizes() {
+        List<CardOwnershipView> cards = new ArrayList<>();
+        for (long id = 1; id <= 1_000; id++) {
+            cards.add(new CardOwnershipView(id, id % 7 + 1, id % 2 == 0 ? CardStatus.ACTIVE : CardStatus.BLOCKED));
+        }
+
+        CardDirectory directory = loadedDirectory(cards);
+
+        assertTrue(directory.isReady());
+        assertEquals(1_000, directory.size());
+        for (long id = 1; id <= 1_000; id++) {
+            assertEquals(id % 7 + 1, directory.ownerOf(id));
+            assertEquals(id % 2 == 0 ? CardStatus.ACTIVE : CardStatus.BLOCKED, directory.statusOf(id));
+        }
+        assertEquals(CardDirectory.UNKNOWN_OWNER, directory.ownerOf(1_001));
+        assertNull(directory.statusOf(1_001));
+        assertTrue(directory.getFootprintBytes() <= 2_048 * 17);
+    }
+
+    @Test
+    void events_ShouldKeepEntriesCurrent() {
+        CardDirectory directory = loadedDirectory(List.of());
+
+        for (long id = 1; id <= 200; id++) {
+            directory.onCardEvent(event(CardEvent.Type.CREATED, id, 5, CardStatus.ACTIVE));
+        }
+        directory.onCardEvent(event(CardEvent.Type.UPDATED, 7, 6, CardStatus.BLOCK_REQUESTED));
+        directory.onCardStatusBulkEvent(new CardStatusBulkEvent(List.of(8L, 9L, 999L), CardStatus.EXPIRED));
+        for (long id = 100; id <= 200; id++) {
+            directory.onCardEvent(event(CardEvent.Type.DELETED, id, 5, CardStatus.ACTIVE));
+        }
+
+        assertEquals(99, directory.size());
+        assertEquals(6, directory.ownerOf(7));
+        assertEquals(CardStatus.BLOCK_REQUESTED, directory.statusOf(7));
+        assertEquals(CardStatus.EXPIRED, directory.statusOf(8));
+        assertEquals(CardStatus.EXPIRED, directory.statusOf(9));
+        assertNull(directory.statusOf(999));
+        for (long id = 1; id < 100; id++) {
+            assertEquals(id == 7 ? 6 : 5, directory.ownerOf(id), "card " + id);
+        }
+        for (long id = 100; id <= 200; id++) {
+            assertEquals(CardDirectory.UNKNOWN_OWNER, directory.ownerOf(id), "card " + id);
+        }
+    }
+
+    @Test
+    void deleteDuringLoad_ShouldNotBeUndoneByALaterChunk() {
+        CardDirectory directory = new CardDirectory(cardRepository, true, 16);
+        when(cardRepository.findOwnershipAfter(anyLong(), any(Pageable.class))).thenAnswer(invocation -> {
+            directory.onCardEvent(event(CardEvent.Type.DELETED, 1, 5, CardStatus.ACTIVE));
+            directory.onCardEvent(event(CardEvent.Type.UPDATED, 2, 5, CardStatus.BLOCKED));
+            return List.of(new CardOwnershipView(1L, 5L, CardStatus.ACTIVE),
+                    new CardOwnershipView(2L, 5L, CardStatus.ACTIVE));
+        });
+
+        directory.load();
+
+        assertEquals(CardDirectory.UNKNOWN_OWNER, directory.ownerOf(1));
+        assertEquals(CardStatus.BLOCKED, directory.statusOf(2));
+        assertEquals(1, directory.size());
+    }
+
+    @Test
+    void bulkStatusDuringLoad_ShouldNotBeUndoneByALaterChunk() {
+        CardDirectory directory = new CardDirectory(cardRepository, true, 16);
+        when(cardRepository.findOwnershipAfter(anyLong(), any(Pageable.class))).thenAnswer(invocation -> {
+            directory.onCardStatusBulkEvent(new CardStatusBulkEvent(List.of(1L, 3L), CardStatus.BLOCKED));
+            return List.of(new CardOwnershipView(1L, 5L, CardStatus.ACTIVE),
+                    new CardOwnershipView(2L, 6L, CardStatus.ACTIVE));
+        });
+
+        directory.load();
+
+        assertEquals(5, directory.ownerOf(1));
+        assertEquals(CardStatus.BLOCKED, directory.statusOf(1));
+        assertEquals(CardStatus.ACTIVE, directory.statusOf(2));
+        // no chunk had card 3, so its placeholder is dropped
+        assertNull(directory.statusOf(3));
+        assertEquals(2, directory.size());
+    }
+
+    @Test
+    void reconcile_ShouldReplaceEntriesThisInstanceNeverHeardAbout() {
+        CardDirectory directory = loadedDirectory(List.of(
+                new CardOwnershipView(1L, 5L, CardStatus.ACTIVE),
+                new CardOwnershipView(2L, 5L, CardStatus.ACTIVE)));
+        // another instance moved card 1, blocked it and deleted card 2; bulk-issued card 3
+        when(cardRepository.findOwnershipAfter(anyLong(), any(Pageable.class))).thenReturn(List.of(
+                new CardOwnershipView(1L, 6L, CardStatus.BLOCKED),
+                new CardOwnershipView(3L, 7L, CardStatus.ACTIVE)));
+
+        directory.reconcile();
+
+        assertEquals(6, directory.ownerOf(1));
+        assertEquals(CardStatus.BLOCKED, directory.statusOf(1));
+        assertEquals(CardDirectory.UNKNOWN_OWNER, directory.ownerOf(2));
+        assertEquals(7, directory.ownerOf(3));
+        assertEquals(2, directory.size());
+    }
+
+    @Test
+    void reconcile_ShouldKeepAnsweringAndLetConcurrentEventsWin() {
+        CardDirectory directory = loadedDirectory(List.of(new CardOwnershipView(1L, 5L, CardStatus.ACTIVE)));
+        when(cardRepository.findOwnershipAfter(anyLong(), any(Pageable.class))).thenAnswer(invocation -> {
+            assertEquals(5, directory.ownerOf(1));
+            directory.onCardEvent(event(CardEvent.Type.UPDATED, 1, 5, CardStatus.BLOCK_REQUESTED));
+            return List.of(new CardOwnershipView(1L, 5L, CardStatus.ACTIVE));
+        });
+
+        directory.reconcile();
+
+        assertEquals(CardStatus.BLOCK_REQUESTED, directory.statusOf(1));
+    }
+
+    @Test
+    void disabled_ShouldNeverLoadOrAnswer() {
+        CardDirectory directory = new CardDirectory(cardRepository, false, 16);
+
+        directory.load();
+        directory.onCardEvent(event(CardEvent.Type.CREATED, 1, 5, CardStatus.ACTIVE));
+
+        assertFalse(directory.isReady());
+        assertEquals(CardDirectory.UNKNOWN_OWNER, directory.ownerOf(1));
+        verifyNoInteractions(cardRepository);
+    }
+}
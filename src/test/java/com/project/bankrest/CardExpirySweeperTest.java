@@ -0,0 +1,107 @@
+package com.project.bankrest;
+
+import com.project.bankrest.Entity.Card;
+import com.project.bankrest.Entity.CardStatus;
+import com.project.bankrest.Entity.User;
+import com.project.bankrest.Repository.CardRepository;
+import com.project.bankrest.Repository.UserRepository;
+import com.project.bankrest.Security.EncryptionUtil;
+import com.project.bankrest.Services.CardExpirySweeper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DataJpaTest(properties = "bankrest.cards.expiry-sweep.batch-size=2")
+@Import({CardExpirySweeper.class, EncryptionUtil.class, SimpleMeterRegistry.class})
+class CardExpirySweeperTest {
+
+    @Autowired
+    private CardExpirySweeper sweeper;
+    @Autowired
+    private CardRepository cardRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private User owner;
+
+    @BeforeEach
+    void setUp() {
+        owner = userRepository.findByUsername("user").orElseThrow();
+    }
+
+    private Card saveCard(String number, String expirationDate, CardStatus status) {
+        Card card = new Card();
+        card.setNumber(number);
+        card.setCvv("123");
+        card.setExpirationDate(expirationDate);
+        card.setStatus(status);
+        card.setBalance(BigDecimal.ONE);
+        card.setUser(owner);
+        return cardRepository.save(card);
+    }
+
+    @Test
+    void parseExpiry_ShouldAcceptClientFormats() {
+        assertEquals(YearMonth.of(2027, 5), Card.parseExpiry("05/27"));
+        assertEquals(YearMonth.of(2027, 5), Card.parseExpiry("2027-05"));
+        assertEquals(YearMonth.of(2027, 5), Card.parseExpiry("2027-05-31"));
+        assertEquals(null, Card.parseExpiry("soon"));
+    }
+
+    @Test
+    void save_ShouldStorePlaintextExpiryMonth() {
+        Card card = saveCard("4000000000000011", "05/27", CardStatus.ACTIVE);
+        entityManager.flush();
+
+        assertEquals(202705, card.getExpiryMonth());
+    }
+
+    @Test
+    void sweep_ShouldExpireOnlyPastCardsAcrossBatches() {
+        Card expired1 = saveCard("4000000000000021", "2024-01", CardStatus.ACTIVE);
+        Card expired2 = saveCard("4000000000000022", "2024-02", CardStatus.BLOCKED);
+        Card expired3 = saveCard("4000000000000023", "12/24", CardStatus.BLOCK_REQUESTED);
+        Card current = saveCard("4000000000000024", "2025-01", CardStatus.ACTIVE);
+        entityManager.flush();
+
+        long processed = sweeper.sweep(YearMonth.of(2025, 1));
+
+        assertEquals(3, processed);
+        assertEquals(3, sweeper.getLastRunProcessed());
+        assertEquals(3.0, meterRegistry.get("bankrest.cards.expiry-sweep.processed").counter().count());
+        assertEquals(3.0, meterRegistry.get("bankrest.cards.expiry-sweep.last-run.processed").gauge().value());
+        assertEquals(CardStatus.EXPIRED, cardRepository.findById(expired1.getId()).orElseThrow().getStatus());
+        assertEquals(CardStatus.EXPIRED, cardRepository.findById(expired2.getId()).orElseThrow().getStatus());
+        assertEquals(CardStatus.EXPIRED, cardRepository.findById(expired3.getId()).orElseThrow().getStatus());
+        assertEquals(CardStatus.ACTIVE, cardRepository.findById(current.getId()).orElseThrow().getStatus());
+
+        assertEquals(0, sweeper.sweep(YearMonth.of(2025, 1)));
+    }
+
+    @Test
+    void sweep_ShouldWalkByExpiryMonthWhenIdsAreOutOfOrder() {
+        Card latest = saveCard("4000000000000031", "2024-06", CardStatus.ACTIVE);
+        Card earliest = saveCard("4000000000000032", "2024-01", CardStatus.ACTIVE);
+        Card middle = saveCard("4000000000000033", "2024-03", CardStatus.ACTIVE);
+        entityManager.flush();
+
+        assertEquals(3, sweeper.sweep(YearMonth.of(2025, 1)));
+        assertEquals(CardStatus.EXPIRED, cardRepository.findById(latest.getId()).orElseThrow().getStatus());
+        assertEquals(CardStatus.EXPIRED, cardRepository.findById(earliest.getId()).orElseThrow().getStatus());
+        assertEquals(CardStatus.EXPIRED, cardRepository.findById(middle.getId()).orElseThrow().getStatus());
+    }
+}
@@ -0,0 +1,152 @@
+package com.project.bankrest;
+
+import com.project.bankrest.Repository.CardRepository;
+import com.project.bankrest.Security.EncryptionUtil;
+import com.project.bankrest.Services.CardNumberIssuer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class CardNumberIssuerTest {
+
+    @Mock
+    private CardRepository cardRepository;
+
+    private EncryptionUtil encryptionUtil;
+    private CardNumberIssuer issuer;
+
+    @BeforeEach
+    void setUp() {
+        encryptionUtil = new EncryptionUtil();
+        encryptionUtil.init();
+        // a zero low watermark keeps background refills out of the tests
+        issuer = new CardNumberIssuer(cardRepository, encryptionUtil, List.of("532124", "41111111"), 50, 0, 4);
+    }
+
+    @Test
+    void nextNumbers_ShouldDrainPoolThenGenerateInChunks() {
+        when(cardRepository.findExistingNumberHashes(anyCollection())).thenReturn(Set.of());
+        issuer.refill();
+
+        List<String> numbers = issuer.nextNumbers(2_550);
+
+        assertEquals(2_550, numbers.size());
+        assertEquals(2_550, new HashSet<>(numbers).size());
+        assertTrue(numbers.stream().allMatch(CardNumberIssuer::isLuhnValid));
+        assertEquals(0, issuer.getPoolSize());
+        // one round for the refill and three for the 2500 numbers beyond the pool
+        verify(cardRepository, times(4)).findExistingNumberHashes(anyCollection());
+    }
+
+    @Test
+    void nextNumbers_ShouldNotRepeatNumbersStillInThePool() {
+        when(cardRepository.findExistingNumberHashes(anyCollection())).thenReturn(Set.of());
+        issuer.refill();
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            Set<String> issued = new HashSet<>(issuer.nextNumbers(20));
+            issued.addAll(issuer.nextNumbers(2_000));
+
+            assertEquals(2_020, issued.size());
+            assertEquals(2_020 + issuer.getPoolSize(), issuer.getReservedCount());
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void isLuhnValid_KnownNumbers() {
+        assertTrue(CardNumberIssuer.isLuhnValid("4111111111111111"));
+        assertTrue(CardNumberIssuer.isLuhnValid("5500005555555559"));
+        assertFalse(CardNumberIssuer.isLuhnValid("4111111111111112"));
+        assertFalse(CardNumberIssuer.isLuhnValid("41111x1111111111"));
+    }
+
+    @Test
+    void nextNumber_ShouldBeLuhnValidWithinConfiguredBins() {
+        when(cardRepository.findExistingNumberHashes(anyCollection())).thenReturn(Set.of());
+
+        Set<String> issued = new HashSet<>();
+        for (int i = 0; i < 40; i++) {
+            String number = issuer.nextNumber();
+            assertEquals(16, number.length());
+            assertTrue(number.startsWith("532124") || number.startsWith("41111111"), number);
+            assertTrue(CardNumberIssuer.isLuhnValid(number), number);
+            assertTrue(issued.add(number), "issued twice: " + number);
+        }
+        verify(cardRepository, times(1)).findExistingNumberHashes(anyCollection());
+    }
+
+    @Test
+    void refill_ShouldSkipNumbersAlreadyInUse() {
+        when(cardRepository.findExistingNumberHashes(anyCollection()))
+                .thenAnswer(invocation -> {
+                    Collection<String> hashes = invocation.getArgument(0);
+                    return Set.of(hashes.iterator().next());
+                })
+                .thenReturn(Set.of());
+
+        issuer.refill();
+
+        assertEquals(50, issuer.getPoolSize());
+        assertEquals(50, issuer.getReservedCount());
+        verify(cardRepository, times(2)).findExistingNumberHashes(anyCollection());
+    }
+
+    @Test
+    void nextNumber_InTransaction_ShouldStayReservedUntilCompletion() {
+        when(cardRepository.findExistingNumberHashes(anyCollection())).thenReturn(Set.of());
+        issuer.refill();
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            issuer.nextNumber();
+            assertEquals(49, issuer.getPoolSize());
+            assertEquals(50, issuer.getReservedCount());
+
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+            assertEquals(49, issuer.getReservedCount());
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void numberHash_ShouldBeDeterministicAndKeyed() {
+        String hash = issuer.numberHash("4111111111111111");
+
+        assertEquals(hash, issuer.numberHash("4111111111111111"));
+        assertNotEquals(hash, issuer.numberHash("4111111111111112"));
+        assertEquals(64, hash.length());
+    }
+
+    @Test
+    void constructor_InvalidBin_ShouldThrowIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new CardNumberIssuer(cardRepository, encryptionUtil, List.of("12ab"), 10, 2, 4));
+    }
+
+    @Test
+    void constructor_PoolNotLargerThanLowWatermark_ShouldThrowIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new CardNumberIssuer(cardRepository, encryptionUtil, List.of("532124"), 0, 0, 4));
+        assertThrows(IllegalArgumentException.class,
+                () -> new CardNumberIssuer(cardRepository, encryptionUtil, List.of("532124"), 10, 10, 4));
+    }
+}
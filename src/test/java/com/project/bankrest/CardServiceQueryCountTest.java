@@ -0,0 +1,297 @@
+package com.project.bankrest;
+
+import com.project.bankrest.DTO.BulkStatusRequest;
+import com.project.bankrest.DTO.CreateCardRequest;
+import com.project.bankrest.DTO.TransferRequest;
+import com.project.bankrest.Entity.Card;
+import com.project.bankrest.Entity.CardStatus;
+import com.project.bankrest.Entity.User;
+import com.project.bankrest.Repository.CardRepository;
+import com.project.bankrest.Repository.UserRepository;
+import com.project.bankrest.Security.EncryptionUtil;
+import com.project.bankrest.Services.CardBalanceCache;
+import com.project.bankrest.Services.CardDirectory;
+import com.project.bankrest.Services.CardNumberIssuer;
+import com.project.bankrest.Services.CardService;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest
+@ActiveProfiles("querycount")
+@Import({CardService.class, CardNumberIssuer.class, CardBalanceCache.class, CardDirectory.class, EncryptionUtil.class,
+        SimpleMeterRegistry.class})
+class CardServiceQueryCountTest {
+
+    @Autowired
+    private CardService cardService;
+    @Autowired
+    private CardRepository cardRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private CardNumberIssuer cardNumberIssuer;
+    @Autowired
+    private EntityManager entityManager;
+
+    private Statistics statistics;
+    private User owner;
+    private Card sourceCard;
+    private Card destCard;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+
+        owner = userRepository.findByUsername("user").orElseThrow();
+        sourceCard = cardRepository.save(newCard("4000000000000001", new BigDecimal("1000.00")));
+        destCard = cardRepository.save(newCard("4000000000000002", new BigDecimal("500.00")));
+
+        cardNumberIssuer.refill();
+        entityManager.flush();
+        entityManager.clear();
+        resetCounters();
+    }
+
+    @AfterAll
+    static void writeReport() throws IOException {
+        QueryCounter.writeReport();
+    }
+
+    private Card newCard(String number, BigDecimal balance) {
+        Card card = new Card();
+        card.setNumber(number);
+        card.setCvv("123");
+        card.setExpirationDate("2028-05");
+        card.setStatus(CardStatus.ACTIVE);
+        card.setBalance(balance);
+        card.setUser(owner);
+        return card;
+    }
+
+    private void resetCounters() {
+        statistics.clear();
+        QueryCounter.reset();
+    }
+
+    private void assertStatements(String endpoint, int selects, int inserts, int updates, int deletes) {
+        entityManager.flush();
+        QueryCounter.assertStatements(endpoint, selects, inserts, updates, deletes);
+    }
+
+    @Test
+    void createCard_ShouldLoadOwnerAndInsert() {
+        CreateCardRequest request = new CreateCardRequest();
+        request.setUserId(owner.getId());
+        request.setNumber("4000000000000003");
+        request.setCvv("321");
+        request.setBalance("10");
+        request.setExpirationDate("2029-01");
+
+        cardService.createCard(request);
+
+        assertStatements("POST /api/cards/admin", 1, 1, 0, 0);
+    }
+
+    @Test
+    void saveAll_ShouldBatchInserts() {
+        List<Card> cards = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            cards.add(newCard(String.format("40000000001%05d", i), BigDecimal.ONE));
+        }
+        cardRepository.saveAll(cards);
+
+        // sequence ids let Hibernate defer the rows and send them through one prepared
+        // INSERT in JDBC batches of 50
+        assertStatements("(batch) save 60 cards", 0, 1, 0, 0);
+        assertEquals(60, statistics.getEntityInsertCount());
+    }
+
+    @Test
+    void createCard_UserNotFound_ShouldStopAfterLookup() {
+        CreateCardRequest request = new CreateCardRequest();
+        request.setUserId(-1L);
+
+        assertThrows(RuntimeException.class, () -> cardService.createCard(request));
+
+        assertStatements("POST /api/cards/admin (unknown user)", 1, 0, 0, 0);
+    }
+
+    @Test
+    void updateCard_WithoutOwnerChange_ShouldSelectAndUpdate() {
+        CreateCardRequest request = new CreateCardRequest();
+        request.setCvv("999");
+        request.setBalance("1");
+        request.setExpirationDate("2030-12");
+        request.setStatus(CardStatus.ACTIVE);
+
+        cardService.updateCard(sourceCard.getId(), request);
+
+        assertStatements("PUT /api/cards/admin/{cardId}", 1, 0, 1, 0);
+    }
+
+    @Test
+    void updateCardStatus_ShouldNotLoadOwner() {
+        cardService.updateCardStatus(sourceCard.getId(), CardStatus.BLOCKED);
+
+        assertStatements("PATCH /api/cards/admin/{cardId}/status", 1, 0, 1, 0);
+        assertEquals(1, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void updateCardStatuses_ByIds_ShouldRunOneSelectAndOneUpdate() {
+        BulkStatusRequest request = new BulkStatusRequest(
+                List.of(sourceCard.getId(), destCard.getId(), -1L), null, CardStatus.BLOCKED);
+
+        assertEquals(2, cardService.updateCardStatuses(request).getUpdated());
+
+        assertStatements("PATCH /api/cards/admin/status/bulk", 1, 0, 1, 0);
+    }
+
+    @Test
+    void updateCardStatuses_ByCurrentStatus_ShouldRunOneSelectAndOneUpdate() {
+        BulkStatusRequest request = new BulkStatusRequest(null, CardStatus.ACTIVE, CardStatus.EXPIRED);
+
+        assertEquals(2, cardService.updateCardStatuses(request).getUpdated());
+
+        assertStatements("PATCH /api/cards/admin/status/bulk (by status)", 1, 0, 1, 0);
+        assertEquals(CardStatus.EXPIRED, cardRepository.findById(sourceCard.getId()).orElseThrow().getStatus());
+    }
+
+    @Test
+    void deleteCard_ShouldSelectAndDelete() {
+        cardService.deleteCard(sourceCard.getId());
+
+        assertStatements("DELETE /api/cards/admin/{cardId}", 1, 0, 0, 1);
+    }
+
+    @Test
+    void getAllCards_ShouldRunSingleProjectionQuery() {
+        assertEquals(2, cardService.getAllCards().size());
+
+        assertStatements("GET /api/cards/admin/all", 1, 0, 0, 0);
+    }
+
+    @Test
+    void getAllCardsByUserId_ShouldRunSingleProjectionQuery() {
+        assertEquals(2, cardService.getAllCardsByUserId(owner.getId()).size());
+
+        assertStatements("GET /api/cards/user/{userId}", 1, 0, 0, 0);
+    }
+
+    @Test
+    void getUserCards_NoSearch_ShouldRunContentAndCountQueries() {
+        assertEquals(2, cardService.getUserCards(owner.getId(), null, PageRequest.of(0, 1)).getTotalElements());
+
+        assertStatements("GET /api/cards/my", 2, 0, 0, 0);
+    }
+
+    @Test
+    void getUserCards_WithSearch_ShouldSkipCountOnPartialFirstPage() {
+        cardService.getUserCards(owner.getId(), "4000", PageRequest.of(0, 10));
+
+        assertStatements("GET /api/cards/my?search", 1, 0, 0, 0);
+    }
+
+    @Test
+    void getCardBalance_ShouldSelectOnlyTheBalance() {
+        assertEquals(0, new BigDecimal("1000.00").compareTo(cardService.getCardBalance(sourceCard.getId(), owner.getId()).getBalance()));
+
+        assertStatements("GET /api/cards/{cardId}/balance", 1, 0, 0, 0);
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void getCardBalance_RepeatedRead_ShouldBeServedFromCache() {
+        cardService.getCardBalance(sourceCard.getId(), owner.getId());
+        resetCounters();
+
+        assertEquals(0, new BigDecimal("1000.00").compareTo(cardService.getCardBalance(sourceCard.getId(), owner.getId()).getBalance()));
+
+        assertStatements("GET /api/cards/{cardId}/balance (cached)", 0, 0, 0, 0);
+    }
+
+    @Test
+    void getCardBalance_NotOwned_ShouldNotReadTheCard() {
+        assertThrows(SecurityException.class, () -> cardService.getCardBalance(sourceCard.getId(), -1L));
+
+        // the owner-scoped lookup finds nothing, then an id-only existence check
+        assertStatements("GET /api/cards/{cardId}/balance (foreign card)", 2, 0, 0, 0);
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void getBlockRequests_ShouldOnlyReadPendingRows() {
+        cardService.requestCardBlock(sourceCard.getId(), owner.getId());
+        entityManager.flush();
+        entityManager.clear();
+        resetCounters();
+
+        assertEquals(1, cardService.getBlockRequests(PageRequest.of(0, 10)).getTotalElements());
+
+        assertStatements("GET /api/cards/admin/block-requests", 1, 0, 0, 0);
+        // the status must reach the database as a literal to match the partial index
+        String select = QueryCounter.statements().get(0);
+        assertTrue(select.matches(".*\\.status=3\\b.*"), select);
+    }
+
+    @Test
+    void requestAndCancelBlock_ShouldSelectAndUpdateOnce() {
+        cardService.requestCardBlock(sourceCard.getId(), owner.getId());
+        assertStatements("PATCH /api/cards/{cardId}/request-block", 1, 0, 1, 0);
+
+        entityManager.clear();
+        resetCounters();
+
+        cardService.cancelCardBlockRequest(sourceCard.getId(), owner.getId());
+        assertStatements("PATCH /api/cards/{cardId}/cancel-request", 1, 0, 1, 0);
+    }
+
+    @Test
+    void transferMoney_ShouldSelectBothCardsAndUpdateBothInOneBatch() {
+        cardService.transferMoney(new TransferRequest(sourceCard.getId(), destCard.getId(), new BigDecimal("100.00")));
+
+        // both rows go through one prepared UPDATE executed as a JDBC batch
+        assertStatements("POST /api/cards/transfer", 2, 0, 1, 0);
+        assertEquals(2, statistics.getEntityLoadCount());
+        assertEquals(2, statistics.getEntityUpdateCount());
+    }
+
+    @Test
+    void transferMoney_InsufficientFunds_ShouldNotWrite() {
+        TransferRequest request = new TransferRequest(sourceCard.getId(), destCard.getId(), new BigDecimal("10000.00"));
+
+        assertThrows(IllegalArgumentException.class, () -> cardService.transferMoney(request));
+
+        assertStatements("POST /api/cards/transfer (insufficient funds)", 2, 0, 0, 0);
+    }
+
+    @Test
+    void transferMoney_InvalidRequest_ShouldNotTouchDatabase() {
+        TransferRequest sameCard = new TransferRequest(sourceCard.getId(), sourceCard.getId(), BigDecimal.TEN);
+        TransferRequest negative = new TransferRequest(sourceCard.getId(), destCard.getId(), new BigDecimal("-10.00"));
+
+        assertThrows(IllegalArgumentException.class, () -> cardService.transferMoney(sameCard));
+        assertThrows(IllegalArgumentException.class, () -> cardService.transferMoney(negative));
+
+        assertStatements("POST /api/cards/transfer (rejected request)", 0, 0, 0, 0);
+    }
+}
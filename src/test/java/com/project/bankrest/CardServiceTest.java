@@ -1,23 +1,42 @@
 package com.project.bankrest;
 
+import com.project.bankrest.DTO.BulkStatusRequest;
+import com.project.bankrest.DTO.BulkStatusResponse;
+import com.project.bankrest.DTO.CardBalanceView;
+import com.project.bankrest.DTO.CardResponse;
+import com.project.bankrest.DTO.CardStatusView;
 import com.project.bankrest.DTO.CreateCardRequest;
 import com.project.bankrest.DTO.TransferRequest;
 import com.project.bankrest.Entity.Card;
+import com.project.bankrest.Entity.CardStatus;
 import com.project.bankrest.Entity.User;
+import com.project.bankrest.Event.CardEvent;
+import com.project.bankrest.Event.CardTransferEvent;
 import com.project.bankrest.Repository.CardRepository;
 import com.project.bankrest.Repository.UserRepository;
 
+import com.project.bankrest.Services.CardBalanceCache;
+import com.project.bankrest.Services.CardDirectory;
+import com.project.bankrest.Services.CardNumberIssuer;
 import com.project.bankrest.Services.CardService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.math.BigDecimal;
 import java.util.Arrays;
@@ -36,6 +55,21 @@ public class CardServiceTest {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private CardNumberIssuer cardNumberIssuer;
+
+    @Mock
+    private CardBalanceCache cardBalanceCache;
+
+    @Mock
+    private CardDirectory cardDirectory;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
     @InjectMocks
     private CardService cardService;
     private User testUser;
@@ -51,16 +85,21 @@ public class CardServiceTest {
         sourceCard = new Card();
         sourceCard.setId(1L);
         sourceCard.setBalance(new BigDecimal("1000.00"));
-        sourceCard.setStatus("ACTIVE");
+        sourceCard.setStatus(CardStatus.ACTIVE);
         sourceCard.setUser(testUser);
 
         destCard = new Card();
         destCard.setId(2L);
         destCard.setBalance(new BigDecimal("500.00"));
-        destCard.setStatus("ACTIVE");
+        destCard.setStatus(CardStatus.ACTIVE);
         destCard.setUser(testUser);
     }
 
+    private CardResponse toResponse(Card card) {
+        return new CardResponse(card.getId(), card.getNumber(), card.getExpirationDate(), card.getStatus(),
+                card.getCvv(), card.getBalance(), card.getUser().getId(), card.getUser().getName());
+    }
+
     @Test
     void createCard_ValidRequest_ShouldReturnSavedCard() {
         CreateCardRequest request = new CreateCardRequest();
@@ -71,7 +110,10 @@ public class CardServiceTest {
         request.setExpirationDate("12/26");
 
         when(userRepository.findById(10L)).thenReturn(Optional.of(testUser));
-        when(cardRepository.save(any(Card.class))).thenAnswer(invocation -> {
+        when(cardNumberIssuer.nextNumber()).thenReturn("5321240000000005");
+        when(cardNumberIssuer.numberHash("5321240000000005")).thenReturn("hash");
+        when(cardNumberIssuer.nextCvv()).thenReturn("042");
+        when(cardRepository.saveAndFlush(any(Card.class))).thenAnswer(invocation -> {
             Card card = invocation.getArgument(0);
             card.setId(5L);
             return card;
@@ -81,12 +123,16 @@ public class CardServiceTest {
 
         assertNotNull(result);
         assertEquals(5L, result.getId());
-        assertEquals("ACTIVE", result.getStatus());
+        assertEquals(CardStatus.ACTIVE, result.getStatus());
         assertEquals(0, new BigDecimal("50.00").compareTo(result.getBalance()));
         assertEquals(testUser, result.getUser());
+        assertEquals("5321240000000005", result.getNumber());
+        assertEquals("hash", result.getNumberHash());
+        assertEquals("042", result.getCvv());
+        assertEquals("12/26", result.getExpirationDate());
 
         verify(userRepository, times(1)).findById(10L);
-        verify(cardRepository, times(1)).save(any(Card.class));
+        verify(cardRepository, times(1)).saveAndFlush(any(Card.class));
     }
 
     @Test
@@ -100,7 +146,7 @@ public class CardServiceTest {
             cardService.createCard(request);
         }, "User not found");
 
-        verify(cardRepository, never()).save(any());
+        verify(cardRepository, never()).saveAndFlush(any());
     }
 
     @Test
@@ -113,71 +159,223 @@ public class CardServiceTest {
         }, "User ID must not be null");
 
         verify(userRepository, never()).findById(anyLong());
-        verify(cardRepository, never()).save(any());
+        verify(cardRepository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    void updateCard_WithoutStatus_ShouldKeepCurrentStatus() {
+        sourceCard.setStatus(CardStatus.BLOCKED);
+        CreateCardRequest request = new CreateCardRequest();
+        request.setCvv("123");
+        request.setBalance("10.00");
+        request.setExpirationDate("12/30");
+        when(cardRepository.findById(1L)).thenReturn(Optional.of(sourceCard));
+        when(cardRepository.saveAndFlush(any(Card.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        Card updated = cardService.updateCard(1L, request);
+
+        assertEquals(CardStatus.BLOCKED, updated.getStatus());
+    }
+
+    @Test
+    void updateCard_WithDifferentNumber_ShouldThrowIllegalArgumentException() {
+        sourceCard.setNumber("5321240000000004");
+        sourceCard.setNumberHash("hash");
+        CreateCardRequest request = new CreateCardRequest();
+        request.setNumber("4000001234567899");
+        request.setCvv("123");
+        request.setBalance("10.00");
+        request.setExpirationDate("12/30");
+        when(cardRepository.findById(1L)).thenReturn(Optional.of(sourceCard));
+
+        assertThrows(IllegalArgumentException.class, () -> cardService.updateCard(1L, request));
+
+        assertEquals("5321240000000004", sourceCard.getNumber());
+        assertEquals("hash", sourceCard.getNumberHash());
+        verify(cardRepository, never()).saveAndFlush(any());
     }
 
     @Test
     void updateCardStatus_ValidIdAndStatus_ShouldUpdateStatus() {
-        String newStatus = "BLOCKED";
+        CardStatus newStatus = CardStatus.BLOCKED;
         when(cardRepository.findById(1L)).thenReturn(Optional.of(sourceCard));
-        when(cardRepository.save(any(Card.class))).thenReturn(sourceCard);
+        when(cardRepository.saveAndFlush(any(Card.class))).thenReturn(sourceCard);
         Card updatedCard = cardService.updateCardStatus(1L, newStatus);
         assertEquals(newStatus, updatedCard.getStatus());
         verify(cardRepository, times(1)).findById(1L);
-        verify(cardRepository, times(1)).save(sourceCard);
+        verify(cardRepository, times(1)).saveAndFlush(sourceCard);
     }
 
     @Test
-    void deleteCard_ValidId_ShouldCallDeleteById() {
+    void updateCardStatuses_ByIds_ShouldReportPerIdOutcomeAndUpdateOnce() {
+        sourceCard.setStatus(CardStatus.BLOCK_REQUESTED);
+        BulkStatusRequest request = new BulkStatusRequest(List.of(1L, 2L, 3L), CardStatus.BLOCK_REQUESTED, CardStatus.BLOCKED);
+
+        when(cardRepository.lockStatusesByIdIn(List.of(1L, 2L, 3L))).thenReturn(List.of(
+                new CardStatusView(1L, CardStatus.BLOCK_REQUESTED),
+                new CardStatusView(2L, CardStatus.ACTIVE)));
+
+        BulkStatusResponse response = cardService.updateCardStatuses(request);
+
+        assertEquals(1, response.getUpdated());
+        assertEquals(1, response.getUnchanged());
+        assertEquals(1, response.getNotFound());
+        assertEquals(BulkStatusResponse.Outcome.UPDATED, response.getResults().get(1L));
+        assertEquals(BulkStatusResponse.Outcome.UNCHANGED, response.getResults().get(2L));
+        assertEquals(BulkStatusResponse.Outcome.NOT_FOUND, response.getResults().get(3L));
+        verify(cardRepository, times(1)).updateStatusByIdIn(List.of(1L), CardStatus.BLOCKED);
+        verify(cardRepository, never()).save(any(Card.class));
+    }
+
+    @Test
+    void updateCardStatuses_ByCurrentStatus_ShouldUpdateMatchingIds() {
+        BulkStatusRequest request = new BulkStatusRequest(null, CardStatus.BLOCK_REQUESTED, CardStatus.BLOCKED);
+
+        when(cardRepository.lockIdsByStatusAfter(eq(CardStatus.BLOCK_REQUESTED), eq(0L), any(Pageable.class)))
+                .thenReturn(List.of(4L, 9L));
+
+        BulkStatusResponse response = cardService.updateCardStatuses(request);
+
+        assertEquals(2, response.getUpdated());
+        verify(cardRepository, times(1)).updateStatusByIdIn(List.of(4L, 9L), CardStatus.BLOCKED);
+    }
+
+    @Test
+    void updateCardStatuses_WithoutSelection_ShouldThrowIllegalArgumentException() {
+        BulkStatusRequest request = new BulkStatusRequest(null, null, CardStatus.BLOCKED);
+
+        assertThrows(IllegalArgumentException.class, () -> cardService.updateCardStatuses(request));
+
+        verify(cardRepository, never()).updateStatusByIdIn(any(), any());
+    }
+
+    @Test
+    void deleteCard_MissingId_ShouldDoNothing() {
+        when(cardRepository.findById(1L)).thenReturn(Optional.empty());
+
         cardService.deleteCard(1L);
-        verify(cardRepository, times(1)).deleteById(1L);
+
+        verify(cardRepository, never()).delete(any(Card.class));
+        verifyNoInteractions(eventPublisher);
     }
 
     @Test
     void getUserCards_NoSearch_ShouldReturnPaginatedCards() {
         Pageable pageable = PageRequest.of(0, 10);
-        List<Card> cardList = Arrays.asList(sourceCard, destCard);
-        Page<Card> expectedPage = new PageImpl<>(cardList, pageable, 2);
-        when(cardRepository.findByUser_IdWithUserEagerly(10L, pageable)).thenReturn(expectedPage);
-        Page<Card> result = cardService.getUserCards(10L, null, pageable);
+        List<CardResponse> cardList = Arrays.asList(toResponse(sourceCard), toResponse(destCard));
+        Page<CardResponse> expectedPage = new PageImpl<>(cardList, pageable, 2);
+        when(cardRepository.findResponsesByUserId(10L, pageable)).thenReturn(expectedPage);
+        Page<CardResponse> result = cardService.getUserCards(10L, null, pageable);
         assertEquals(2, result.getTotalElements());
-        assertEquals(sourceCard, result.getContent().get(0));
-        verify(cardRepository, times(1)).findByUser_IdWithUserEagerly(10L, pageable);
-        verify(cardRepository, never()).findByUser_IdAndNumberContainingWithUserEagerly(anyLong(), anyString(), any(Pageable.class));
+        assertEquals(sourceCard.getId(), result.getContent().get(0).getId());
+        verify(cardRepository, times(1)).findResponsesByUserId(10L, pageable);
+        verify(cardRepository, never()).findResponsesByUserIdAndNumberContaining(anyLong(), anyString(), any(Pageable.class));
     }
 
     @Test
     void getUserCards_WithSearch_ShouldReturnSearchedPaginatedCards() {
         String search = "123";
         Pageable pageable = PageRequest.of(0, 10);
-        List<Card> cardList = Arrays.asList(sourceCard);
-        Page<Card> expectedPage = new PageImpl<>(cardList, pageable, 1);
-        when(cardRepository.findByUser_IdAndNumberContainingWithUserEagerly(10L, search, pageable)).thenReturn(expectedPage);
-        Page<Card> result = cardService.getUserCards(10L, search, pageable);
+        List<CardResponse> cardList = Arrays.asList(toResponse(sourceCard));
+        Page<CardResponse> expectedPage = new PageImpl<>(cardList, pageable, 1);
+        when(cardRepository.findResponsesByUserIdAndNumberContaining(10L, search, pageable)).thenReturn(expectedPage);
+        Page<CardResponse> result = cardService.getUserCards(10L, search, pageable);
         assertEquals(1, result.getTotalElements());
-        verify(cardRepository, times(1)).findByUser_IdAndNumberContainingWithUserEagerly(10L, search, pageable);
-        verify(cardRepository, never()).findByUser_IdWithUserEagerly(anyLong(), any(Pageable.class));
+        verify(cardRepository, times(1)).findResponsesByUserIdAndNumberContaining(10L, search, pageable);
+        verify(cardRepository, never()).findResponsesByUserId(anyLong(), any(Pageable.class));
+    }
+
+    @Test
+    void getAllCardsByUserId_ShouldUseProjectionQuery() {
+        when(cardRepository.findResponsesByUserId(10L)).thenReturn(List.of(toResponse(sourceCard)));
+        List<CardResponse> result = cardService.getAllCardsByUserId(10L);
+        assertEquals(1, result.size());
+        assertEquals("1000.00", result.get(0).getBalance());
+        assertEquals("Test User", result.get(0).getUserName());
+        verify(cardRepository, never()).findByUserId(anyLong());
+    }
+
+    @Test
+    void getCardBalance_CardOwnedByUser_ShouldReturnAndCacheBalance() {
+        when(cardRepository.findBalanceViewByIdAndUserId(1L, 10L))
+                .thenReturn(Optional.of(new CardBalanceView(new BigDecimal("1000.00"), 3L)));
+        CardBalanceView view = cardService.getCardBalance(1L, 10L);
+        assertEquals(0, new BigDecimal("1000.00").compareTo(view.getBalance()));
+        assertEquals(3L, view.getVersion());
+        verify(cardRepository, never()).findById(anyLong());
+        verify(cardBalanceCache, times(1)).put(1L, 10L, view.getBalance(), 3L);
     }
 
     @Test
-    void getCardBalance_CardOwnedByUser_ShouldReturnBalance() {
+    void getCardBalance_Cached_ShouldNotQuery() {
+        when(cardBalanceCache.get(1L, 10L)).thenReturn(new CardBalanceView(new BigDecimal("42.00"), 7L));
+
+        CardBalanceView view = cardService.getCardBalance(1L, 10L);
+        assertEquals(new BigDecimal("42.00"), view.getBalance());
+        assertEquals(7L, view.getVersion());
+        verifyNoInteractions(cardRepository);
+    }
+
+    @Test
+    void deleteCard_ShouldPublishDeletedEvent() {
         when(cardRepository.findById(1L)).thenReturn(Optional.of(sourceCard));
-        BigDecimal balance = cardService.getCardBalance(1L, 10L);
-        assertEquals(0, new BigDecimal("1000.00").compareTo(balance));
-        verify(cardRepository, times(1)).findById(1L);
+
+        cardService.deleteCard(1L);
+
+        verify(cardRepository, times(1)).delete(sourceCard);
+        verify(eventPublisher, times(1)).publishEvent(argThat((Object event) ->
+                event instanceof CardEvent cardEvent && cardEvent.getType() == CardEvent.Type.DELETED));
     }
 
     @Test
     void getCardBalance_CardNotOwnedByUser_ShouldThrowSecurityException() {
         Long hackerId = 99L;
 
-        when(cardRepository.findById(1L)).thenReturn(Optional.of(sourceCard));
+        when(cardRepository.findBalanceViewByIdAndUserId(1L, hackerId)).thenReturn(Optional.empty());
+        when(cardRepository.existsById(1L)).thenReturn(true);
 
         assertThrows(SecurityException.class, () -> {
             cardService.getCardBalance(1L, hackerId);
         }, "Access denied: Card does not belong to the user.");
     }
 
+    @Test
+    void getCardBalance_ForeignCardInDirectory_ShouldNotQuery() {
+        when(cardDirectory.ownerOf(1L)).thenReturn(11L);
+
+        assertThrows(SecurityException.class, () -> cardService.getCardBalance(1L, 10L));
+        verifyNoInteractions(cardRepository);
+    }
+
+    @Test
+    void cancelCardBlockRequest_KnownActiveCard_ShouldNotQuery() {
+        when(cardDirectory.ownerOf(1L)).thenReturn(10L);
+        when(cardDirectory.statusOf(1L)).thenReturn(CardStatus.ACTIVE);
+
+        assertThrows(IllegalArgumentException.class, () -> cardService.cancelCardBlockRequest(1L, 10L));
+        verifyNoInteractions(cardRepository);
+    }
+
+    @Test
+    void getCardBalance_CardMissing_ShouldThrowNotFound() {
+        when(cardRepository.findBalanceViewByIdAndUserId(5L, 10L)).thenReturn(Optional.empty());
+        when(cardRepository.existsById(5L)).thenReturn(false);
+
+        RuntimeException e = assertThrows(RuntimeException.class, () -> cardService.getCardBalance(5L, 10L));
+        assertEquals("Card not found.", e.getMessage());
+    }
+
+    @Test
+    void requestCardBlock_OwnedCard_ShouldUseOwnerScopedLookup() {
+        when(cardRepository.findByIdAndUserId(1L, 10L)).thenReturn(Optional.of(sourceCard));
+        when(cardRepository.saveAndFlush(sourceCard)).thenReturn(sourceCard);
+
+        cardService.requestCardBlock(1L, 10L);
+
+        assertEquals(CardStatus.BLOCK_REQUESTED, sourceCard.getStatus());
+        verify(cardRepository, never()).existsById(anyLong());
+    }
+
 
     @Test
     void transferMoney_SuccessfulTransfer_ShouldUpdateBalances() {
@@ -191,8 +389,69 @@ public class CardServiceTest {
         assertEquals(0, new BigDecimal("900.00").compareTo(sourceCard.getBalance()));
         assertEquals(0, new BigDecimal("600.00").compareTo(destCard.getBalance()));
 
-        verify(cardRepository, times(1)).save(sourceCard);
-        verify(cardRepository, times(1)).save(destCard);
+        verify(cardRepository, times(1)).saveAllAndFlush(List.of(sourceCard, destCard));
+        ArgumentCaptor<CardEvent> events = ArgumentCaptor.forClass(CardEvent.class);
+        verify(eventPublisher, times(2)).publishEvent(events.capture());
+        assertEquals(List.of(1L, 2L), events.getAllValues().stream().map(CardEvent::getCardId).toList());
+        assertEquals(0, new BigDecimal("900.00").compareTo(events.getAllValues().get(0).getBalance()));
+        verify(eventPublisher).publishEvent(argThat((Object event) -> event instanceof CardTransferEvent transfer
+                && transfer.getFromCardId() == 1L && transfer.getToCardId() == 2L
+                && transfer.getAmount().compareTo(new BigDecimal("100.00")) == 0));
+        assertEquals(1, meterRegistry.counter("bankrest.transfers", "outcome", "completed").count());
+    }
+
+    @Test
+    void transferMoney_InTransaction_ShouldCountCompletedOnlyAfterCommit() {
+        TransferRequest request = new TransferRequest(1L, 2L, new BigDecimal("100.00"));
+
+        when(cardRepository.findById(1L)).thenReturn(Optional.of(sourceCard));
+        when(cardRepository.findById(2L)).thenReturn(Optional.of(destCard));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            cardService.transferMoney(request);
+            assertEquals(0, meterRegistry.counter("bankrest.transfers", "outcome", "completed").count());
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            assertEquals(1, meterRegistry.counter("bankrest.transfers", "outcome", "completed").count());
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void transferMoney_RolledBack_ShouldNotCountCompleted() {
+        TransferRequest request = new TransferRequest(1L, 2L, new BigDecimal("100.00"));
+
+        when(cardRepository.findById(1L)).thenReturn(Optional.of(sourceCard));
+        when(cardRepository.findById(2L)).thenReturn(Optional.of(destCard));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            cardService.transferMoney(request);
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertEquals(0, meterRegistry.counter("bankrest.transfers", "outcome", "completed").count());
+    }
+
+    @Test
+    void transferMoney_ConcurrentChange_ShouldCountConflictAndRethrow() {
+        TransferRequest request = new TransferRequest(1L, 2L, new BigDecimal("100.00"));
+
+        when(cardRepository.findById(1L)).thenReturn(Optional.of(sourceCard));
+        when(cardRepository.findById(2L)).thenReturn(Optional.of(destCard));
+        when(cardRepository.saveAllAndFlush(anyIterable()))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Card.class, 1L));
+
+        assertThrows(ObjectOptimisticLockingFailureException.class, () -> cardService.transferMoney(request));
+
+        verify(eventPublisher, never()).publishEvent(any());
+        assertEquals(1, meterRegistry.counter("bankrest.transfers", "outcome", "conflict").count());
+        assertEquals(0, meterRegistry.counter("bankrest.transfers", "outcome", "completed").count());
     }
 
     @Test
@@ -208,12 +467,13 @@ public class CardServiceTest {
 
         assertEquals(0, new BigDecimal("1000.00").compareTo(sourceCard.getBalance()));
         assertEquals(0, new BigDecimal("500.00").compareTo(destCard.getBalance()));
-        verify(cardRepository, never()).save(any(Card.class));
+        verify(cardRepository, never()).saveAllAndFlush(anyIterable());
+        assertEquals(1, meterRegistry.counter("bankrest.transfers", "outcome", "insufficient_funds").count());
     }
 
     @Test
     void transferMoney_InactiveSourceCard_ShouldThrowException() {
-        sourceCard.setStatus("BLOCKED");
+        sourceCard.setStatus(CardStatus.BLOCKED);
         TransferRequest request = new TransferRequest(1L, 2L, new BigDecimal("10.00"));
 
         when(cardRepository.findById(1L)).thenReturn(Optional.of(sourceCard));
@@ -223,7 +483,17 @@ public class CardServiceTest {
             cardService.transferMoney(request);
         }, "One or both cards are not active.");
 
-        verify(cardRepository, never()).save(any(Card.class));
+        verify(cardRepository, never()).saveAllAndFlush(anyIterable());
+    }
+
+    @Test
+    void transferMoney_BlockedCardInDirectory_ShouldNotQuery() {
+        when(cardDirectory.statusOf(1L)).thenReturn(CardStatus.ACTIVE);
+        when(cardDirectory.statusOf(2L)).thenReturn(CardStatus.BLOCKED);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> cardService.transferMoney(new TransferRequest(1L, 2L, new BigDecimal("10.00"))));
+        verifyNoInteractions(cardRepository);
     }
 
     @Test
@@ -235,7 +505,7 @@ public class CardServiceTest {
         }, "Transfer amount must be positive.");
 
         verify(cardRepository, never()).findById(anyLong());
-        verify(cardRepository, never()).save(any(Card.class));
+        verify(cardRepository, never()).saveAllAndFlush(anyIterable());
     }
 
     @Test
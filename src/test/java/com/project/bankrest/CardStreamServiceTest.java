@@ -0,0 +1,212 @@
+package com.project.bankrest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.project.bankrest.Controller.CardController;
+import com.project.bankrest.DTO.CardOwnershipView;
+import com.project.bankrest.Entity.Card;
+import com.project.bankrest.Entity.CardStatus;
+import com.project.bankrest.Entity.User;
+import com.project.bankrest.Event.CardEvent;
+import com.project.bankrest.Event.CardStatusBulkEvent;
+import com.project.bankrest.Repository.CardRepository;
+import com.project.bankrest.Services.CardBulkIssuer;
+import com.project.bankrest.Services.CardDirectory;
+import com.project.bankrest.Services.CardService;
+import com.project.bankrest.Services.CardStreamService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+class CardStreamServiceTest {
+
+    private CardRepository cardRepository;
+    private CardStreamService streamService;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        cardRepository = mock(CardRepository.class);
+        streamService = new CardStreamService(cardRepository, new CardDirectory(cardRepository, false, 16),
+                new ObjectMapper(), new SimpleMeterRegistry(), Duration.ofMinutes(1), 8, 2, 3, 1,
+                Duration.ofSeconds(5), 4);
+        mockMvc = mockMvc(streamService);
+    }
+
+    private static MockMvc mockMvc(CardStreamService streamService) {
+        CardController controller = new CardController(mock(CardService.class), mock(CardBulkIssuer.class), streamService);
+        return MockMvcBuilders.standaloneSetup(controller).build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        streamService.shutdown();
+    }
+
+    private MvcResult open(Long userId) throws Exception {
+        User user = new User();
+        user.setId(userId);
+        return mockMvc.perform(get("/api/cards/stream")
+                        .accept(MediaType.TEXT_EVENT_STREAM)
+                        .principal(new UsernamePasswordAuthenticationToken(user, null, List.of())))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+    }
+
+    private static String awaitContent(MvcResult result, String expected) throws Exception {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        String content = result.getResponse().getContentAsString();
+        while (!content.contains(expected) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            content = result.getResponse().getContentAsString();
+        }
+        return content;
+    }
+
+    private static Card card(Long id, Long userId, String balance, CardStatus status) {
+        User user = new User();
+        user.setId(userId);
+        Card card = new Card();
+        card.setId(id);
+        card.setUser(user);
+        card.setBalance(new BigDecimal(balance));
+        card.setStatus(status);
+        return card;
+    }
+
+    @Test
+    void stream_ShouldPushOnlyTheUsersOwnCardChanges() throws Exception {
+        MvcResult mine = open(1L);
+        MvcResult other = open(2L);
+
+        streamService.onCardEvent(CardEvent.of(CardEvent.Type.UPDATED, card(10L, 1L, "75.50", CardStatus.ACTIVE)));
+        streamService.onCardEvent(CardEvent.of(CardEvent.Type.DELETED, card(20L, 2L, "0", CardStatus.BLOCKED)));
+
+        String expected = "event:card\ndata:{\"cardId\":10,\"status\":\"ACTIVE\",\"balance\":75.50}\n\n";
+        String content = awaitContent(mine, expected);
+        assertTrue(content.startsWith(":connected\nretry:3000\n"), content);
+        assertTrue(content.contains(expected), content);
+        assertFalse(content.contains("\"cardId\":20"), content);
+
+        String otherContent = awaitContent(other, "\"deleted\":true}\n\n");
+        assertTrue(otherContent.contains("data:{\"cardId\":20,\"deleted\":true}"), otherContent);
+        assertFalse(otherContent.contains("\"cardId\":10"), otherContent);
+    }
+
+    @Test
+    void bulkStatusChange_ShouldResolveOwnersAndPushStatus() throws Exception {
+        MvcResult mine = open(1L);
+        when(cardRepository.findOwnershipByIdIn(anyCollection())).thenReturn(List.of(
+                new CardOwnershipView(10L, 1L, CardStatus.BLOCKED),
+                new CardOwnershipView(11L, 3L, CardStatus.BLOCKED)));
+
+        streamService.onCardStatusBulkEvent(new CardStatusBulkEvent(List.of(10L, 11L), CardStatus.BLOCKED));
+
+        String expected = "data:{\"cardId\":10,\"status\":\"BLOCKED\"}\n\n";
+        String content = awaitContent(mine, expected);
+        assertTrue(content.contains(expected), content);
+        assertFalse(content.contains("\"cardId\":11"), content);
+    }
+
+    @Test
+    void bulkStatusChange_WithoutSubscribers_ShouldNotQuery() {
+        streamService.onCardStatusBulkEvent(new CardStatusBulkEvent(List.of(10L), CardStatus.BLOCKED));
+
+        verifyNoInteractions(cardRepository);
+    }
+
+    @Test
+    void heartbeat_ShouldReachEveryOpenStream() throws Exception {
+        MvcResult first = open(1L);
+        MvcResult second = open(2L);
+
+        streamService.heartbeat();
+
+        assertTrue(awaitContent(first, ":ping\n\n").contains(":ping\n\n"));
+        assertTrue(awaitContent(second, ":ping\n\n").contains(":ping\n\n"));
+    }
+
+    @Test
+    void subscribe_PastPerUserLimit_ShouldCloseOldestStream() throws Exception {
+        MvcResult oldest = open(1L);
+        open(1L);
+        open(1L);
+
+        assertEquals(2, streamService.getSubscriberCount());
+        streamService.onCardEvent(CardEvent.of(CardEvent.Type.UPDATED, card(10L, 1L, "1", CardStatus.ACTIVE)));
+        Thread.sleep(100);
+        assertFalse(oldest.getResponse().getContentAsString().contains("event:card"));
+    }
+
+    @Test
+    void stalledWrite_ShouldDropItsStreamAndNotHoldUpOthers() throws Exception {
+        CountDownLatch unblock = new CountDownLatch(1);
+        AtomicBoolean first = new AtomicBoolean(true);
+        streamService.shutdown();
+        // one sender thread, and the first stream's client never reads
+        streamService = new CardStreamService(cardRepository, new CardDirectory(cardRepository, false, 16),
+                new ObjectMapper(), new SimpleMeterRegistry(), Duration.ofMinutes(1), 8, 2, 3, 1,
+                Duration.ofMillis(50), 4) {
+            @Override
+            protected SseEmitter newEmitter(long timeoutMillis) {
+                if (!first.getAndSet(false)) {
+                    return super.newEmitter(timeoutMillis);
+                }
+                // blocks outside the emitter's monitor: the request thread may still be
+                // initializing the emitter when the first write starts
+                return new SseEmitter(timeoutMillis) {
+                    @Override
+                    public void send(Set<DataWithMediaType> items) throws IOException {
+                        try {
+                            unblock.await();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        throw new IOException("write timed out");
+                    }
+                };
+            }
+        };
+        mockMvc = mockMvc(streamService);
+        open(1L);
+        MvcResult other = open(2L);
+
+        Thread.sleep(100);
+        assertFalse(other.getResponse().getContentAsString().contains(":connected"));
+        streamService.dropStalledWrites();
+
+        assertTrue(awaitContent(other, ":connected").contains(":connected"));
+        assertEquals(1, streamService.getSubscriberCount());
+        unblock.countDown();
+    }
+
+    @Test
+    void subscribe_PastNodeLimit_ShouldBeRefused() throws Exception {
+        open(1L);
+        open(2L);
+        open(3L);
+
+        assertThrows(IllegalStateException.class, () -> streamService.subscribe(4L));
+        assertEquals(3, streamService.getSubscriberCount());
+    }
+}
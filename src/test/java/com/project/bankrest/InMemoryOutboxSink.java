@@ -0,0 +1,31 @@
+package com.project.bankrest;
+
+import com.project.bankrest.DTO.OutboxMessage;
+import com.project.bankrest.Services.OutboxSink;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps published messages in order; fails the next publish when asked to.
+ */
+class InMemoryOutboxSink implements OutboxSink {
+
+    final List<OutboxMessage> messages = new ArrayList<>();
+    final List<Integer> batchSizes = new ArrayList<>();
+    boolean failNext;
+
+    @Override
+    public void publish(List<OutboxMessage> batch) {
+        if (failNext) {
+            failNext = false;
+            throw new IllegalStateException("sink unavailable");
+        }
+        messages.addAll(batch);
+        batchSizes.add(batch.size());
+    }
+
+    List<String> types() {
+        return messages.stream().map(OutboxMessage::getType).toList();
+    }
+}
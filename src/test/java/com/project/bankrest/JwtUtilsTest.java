@@ -60,4 +60,13 @@ public class JwtUtilsTest {
 
         assertTrue(jwtUtils.validateJwtToken(token));
     }
+
+    @Test
+    void testParseUsername() {
+        String token = jwtUtils.generateJwtToken(user);
+
+        assertEquals("testUser", jwtUtils.parseUsername(token));
+        assertNull(jwtUtils.parseUsername("invalidToken123"));
+        assertNull(jwtUtils.parseUsername(""));
+    }
 }
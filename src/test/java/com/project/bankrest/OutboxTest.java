@@ -0,0 +1,266 @@
+package com.project.bankrest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.project.bankrest.DTO.BulkCreateCardsRequest;
+import com.project.bankrest.DTO.CreateCardRequest;
+import com.project.bankrest.DTO.OutboxMessage;
+import com.project.bankrest.DTO.TransferRequest;
+import com.project.bankrest.Entity.Card;
+import com.project.bankrest.Entity.CardStatus;
+import com.project.bankrest.Event.CardTransferEvent;
+import com.project.bankrest.Repository.SequenceIdAllocator;
+import com.project.bankrest.Repository.UserRepository;
+import com.project.bankrest.Security.EncryptionUtil;
+import com.project.bankrest.Services.CardBalanceCache;
+import com.project.bankrest.Services.CardBulkIssuer;
+import com.project.bankrest.Services.CardDirectory;
+import com.project.bankrest.Services.CardNumberIssuer;
+import com.project.bankrest.Services.CardService;
+import com.project.bankrest.Services.FileOutboxSink;
+import com.project.bankrest.Services.OutboxRelay;
+import com.project.bankrest.Services.OutboxWriter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs without the usual test transaction: outbox rows are only written when the
+ * service's own transaction commits.
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({CardService.class, CardNumberIssuer.class, CardBalanceCache.class, CardDirectory.class, EncryptionUtil.class,
+        SimpleMeterRegistry.class, OutboxWriter.class, JacksonAutoConfiguration.class, CardBulkIssuer.class,
+        SequenceIdAllocator.class})
+class OutboxTest {
+
+    @Autowired
+    private CardService cardService;
+    @Autowired
+    private CardBulkIssuer cardBulkIssuer;
+    @Autowired
+    private OutboxWriter outboxWriter;
+    @Autowired
+    private CardNumberIssuer cardNumberIssuer;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final InMemoryOutboxSink sink = new InMemoryOutboxSink();
+    private Long ownerId;
+
+    @BeforeEach
+    void setUp() {
+        ownerId = userRepository.findByUsername("user").orElseThrow().getId();
+        cardNumberIssuer.refill();
+    }
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM outbox_event");
+        jdbcTemplate.update("DELETE FROM outbox_position");
+        jdbcTemplate.update("DELETE FROM outbox_gap");
+        jdbcTemplate.update("DELETE FROM cards WHERE user_id = ?", ownerId);
+    }
+
+    private OutboxRelay relay(String name, int batchSize) {
+        return new OutboxRelay(jdbcTemplate, transactionTemplate, sink, new SimpleMeterRegistry(),
+                name, batchSize, Duration.ofSeconds(10), Duration.ofMinutes(15), Duration.ofDays(7));
+    }
+
+    private Card createCard(String balance) {
+        CreateCardRequest request = new CreateCardRequest();
+        request.setUserId(ownerId);
+        request.setBalance(balance);
+        return cardService.createCard(request);
+    }
+
+    private int outboxRows() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM outbox_event", Integer.class);
+    }
+
+    @Test
+    void cardMutations_ShouldBeRelayedInCommitOrder() throws Exception {
+        Card source = createCard("100.00");
+        Card dest = createCard("0.00");
+        cardService.transferMoney(new TransferRequest(source.getId(), dest.getId(), new BigDecimal("40.00")));
+        cardService.updateCardStatus(dest.getId(), CardStatus.BLOCKED);
+        cardService.deleteCard(dest.getId());
+
+        OutboxRelay relay = relay("test", 2);
+        assertEquals(7, relay.relay());
+
+        assertEquals(List.of(
+                OutboxWriter.CARD_CREATED, OutboxWriter.CARD_CREATED,
+                OutboxWriter.CARD_UPDATED, OutboxWriter.CARD_UPDATED, OutboxWriter.TRANSFER_COMPLETED,
+                OutboxWriter.CARD_STATUS_CHANGED, OutboxWriter.CARD_DELETED), sink.types());
+        assertEquals(List.of(2, 2, 2, 1), sink.batchSizes);
+
+        List<Long> ids = sink.messages.stream().map(OutboxMessage::getId).toList();
+        assertEquals(ids.stream().sorted().toList(), ids);
+        assertEquals(ids.get(ids.size() - 1), relay.getPosition());
+
+        JsonNode transfer = objectMapper.readTree(sink.messages.get(4).getPayload());
+        assertEquals(source.getId(), transfer.get("fromCardId").asLong());
+        assertEquals(dest.getId(), transfer.get("toCardId").asLong());
+        assertEquals(0, new BigDecimal("40.00").compareTo(transfer.get("amount").decimalValue()));
+        JsonNode update = objectMapper.readTree(sink.messages.get(2).getPayload());
+        assertEquals(source.getId(), update.get("cardId").asLong());
+        assertFalse(update.has("balance"));
+        JsonNode statusChange = objectMapper.readTree(sink.messages.get(5).getPayload());
+        assertEquals("ACTIVE", statusChange.get("previousStatus").asText());
+        assertEquals("BLOCKED", statusChange.get("status").asText());
+
+        assertEquals(0, relay.relay());
+        assertEquals(7, sink.messages.size());
+    }
+
+    @Test
+    void bulkIssue_ShouldRecordOneCreatedRowPerCard() throws Exception {
+        BulkCreateCardsRequest request = new BulkCreateCardsRequest();
+        request.setUserIds(List.of(ownerId));
+        request.setCardsPerUser(3);
+        request.setBalance("25.00");
+        cardBulkIssuer.issue(request);
+
+        OutboxRelay relay = relay("test", 10);
+        assertEquals(3, relay.relay());
+        assertEquals(List.of(OutboxWriter.CARD_CREATED, OutboxWriter.CARD_CREATED, OutboxWriter.CARD_CREATED),
+                sink.types());
+        List<Long> cardIds = jdbcTemplate.queryForList(
+                "SELECT id FROM cards WHERE user_id = ? ORDER BY id", Long.class, ownerId);
+        assertEquals(cardIds, sink.messages.stream().map(OutboxMessage::getCardId).toList());
+        JsonNode created = objectMapper.readTree(sink.messages.get(0).getPayload());
+        assertEquals(ownerId, created.get("userId").asLong());
+        assertEquals("ACTIVE", created.get("status").asText());
+        assertFalse(created.has("balance"));
+    }
+
+    @Test
+    void rolledBackTransaction_ShouldLeaveNoOutboxRow() {
+        transactionTemplate.executeWithoutResult(status -> {
+            outboxWriter.onCardTransferEvent(new CardTransferEvent(1L, 2L, BigDecimal.TEN));
+            status.setRollbackOnly();
+        });
+        assertEquals(0, outboxRows());
+
+        transactionTemplate.executeWithoutResult(status ->
+                outboxWriter.onCardTransferEvent(new CardTransferEvent(1L, 2L, BigDecimal.TEN)));
+        assertEquals(1, outboxRows());
+    }
+
+    @Test
+    void failedTransfer_ShouldLeaveNoOutboxRow() {
+        Card source = createCard("10.00");
+        Card dest = createCard("0.00");
+        int before = outboxRows();
+
+        assertThrows(IllegalArgumentException.class, () ->
+                cardService.transferMoney(new TransferRequest(source.getId(), dest.getId(), new BigDecimal("50.00"))));
+
+        assertEquals(before, outboxRows());
+    }
+
+    @Test
+    void sinkFailure_ShouldKeepPositionAndRetry() {
+        createCard("1.00");
+        OutboxRelay relay = relay("test", 10);
+        sink.failNext = true;
+
+        assertThrows(IllegalStateException.class, relay::relay);
+        assertEquals(0, relay.getPosition());
+        assertEquals(0, sink.messages.size());
+
+        assertEquals(1, relay.relay());
+        assertEquals(1, sink.messages.size());
+    }
+
+    @Test
+    void relay_ShouldWaitAtRecentGapAndSkipItOnceSettled() {
+        for (int i = 0; i < 3; i++) {
+            outboxWriter.onCardTransferEvent(new CardTransferEvent((long) i, 99L, BigDecimal.ONE));
+        }
+        List<Long> ids = jdbcTemplate.queryForList("SELECT id FROM outbox_event ORDER BY id", Long.class);
+        jdbcTemplate.update("DELETE FROM outbox_event WHERE id = ?", ids.get(1));
+        // position just before the first row, as a relay that has seen everything earlier
+        jdbcTemplate.update("INSERT INTO outbox_position (relay, last_id) VALUES ('test', ?)", ids.get(0) - 1);
+        OutboxRelay relay = relay("test", 10);
+
+        assertEquals(1, relay.relay());
+        assertEquals(ids.get(0), relay.getPosition());
+
+        jdbcTemplate.update("UPDATE outbox_event SET created_at = ? WHERE id = ?",
+                Timestamp.from(Instant.now().minus(Duration.ofMinutes(1))), ids.get(2));
+        assertEquals(1, relay.relay());
+        assertEquals(ids.get(2), relay.getPosition());
+    }
+
+    @Test
+    void relay_ShouldPublishARowThatCommitsAfterItsGapWasSkipped() {
+        for (int i = 0; i < 3; i++) {
+            outboxWriter.onCardTransferEvent(new CardTransferEvent((long) i, 99L, BigDecimal.ONE));
+        }
+        List<Long> ids = jdbcTemplate.queryForList("SELECT id FROM outbox_event ORDER BY id", Long.class);
+        jdbcTemplate.update("DELETE FROM outbox_event WHERE id = ?", ids.get(1));
+        jdbcTemplate.update("UPDATE outbox_event SET created_at = ? WHERE id = ?",
+                Timestamp.from(Instant.now().minus(Duration.ofMinutes(1))), ids.get(2));
+        jdbcTemplate.update("INSERT INTO outbox_position (relay, last_id) VALUES ('test', ?)", ids.get(0) - 1);
+        OutboxRelay relay = relay("test", 10);
+
+        assertEquals(2, relay.relay());
+        assertEquals(ids.get(2), relay.getPosition());
+
+        // the skipped id's transaction finally commits
+        jdbcTemplate.update("INSERT INTO outbox_event (id, event_type, card_id, payload, created_at) "
+                        + "VALUES (?, ?, 1, '{}', LOCALTIMESTAMP)", ids.get(1), OutboxWriter.TRANSFER_COMPLETED);
+        assertEquals(1, relay.relay());
+        assertEquals(List.of(ids.get(0), ids.get(2), ids.get(1)),
+                sink.messages.stream().map(OutboxMessage::getId).toList());
+        assertEquals(ids.get(2), relay.getPosition());
+
+        assertEquals(0, relay.relay());
+    }
+
+    @Test
+    void fileSink_ShouldAppendOneJsonLinePerMessage(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("feed").resolve("card-events.ndjson");
+        FileOutboxSink fileSink = new FileOutboxSink(objectMapper, file);
+        Instant now = Instant.now();
+
+        fileSink.publish(List.of(new OutboxMessage(1, OutboxWriter.CARD_CREATED, 5, "{\"cardId\":5}", now)));
+        fileSink.publish(List.of(new OutboxMessage(2, OutboxWriter.CARD_DELETED, 5, "{\"cardId\":5}", now)));
+
+        List<String> lines = Files.readAllLines(file);
+        assertEquals(2, lines.size());
+        JsonNode second = objectMapper.readTree(lines.get(1));
+        assertEquals(2, second.get("id").asLong());
+        assertEquals(OutboxWriter.CARD_DELETED, second.get("type").asText());
+        assertEquals(5, second.get("payload").get("cardId").asLong());
+    }
+}
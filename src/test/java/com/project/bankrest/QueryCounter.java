@@ -0,0 +1,92 @@
+package com.project.bankrest;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Counts every SQL statement Hibernate prepares, grouped by kind. Registered through
+ * the "querycount" test profile; tests reset it, run a service call, flush and then
+ * assert the expected counts. Each assertion is also recorded for the build report
+ * written to target/query-count-report.txt; the map is static, so every test class
+ * running in the same Surefire JVM contributes to one report.
+ */
+public class QueryCounter implements StatementInspector {
+
+    private static final AtomicInteger SELECTS = new AtomicInteger();
+    private static final AtomicInteger INSERTS = new AtomicInteger();
+    private static final AtomicInteger UPDATES = new AtomicInteger();
+    private static final AtomicInteger DELETES = new AtomicInteger();
+    private static final List<String> STATEMENTS = Collections.synchronizedList(new ArrayList<>());
+
+    private static final Map<String, int[]> REPORT = new TreeMap<>();
+    private static final Path REPORT_FILE = Path.of("target", "query-count-report.txt");
+
+    @Override
+    public String inspect(String sql) {
+        String statement = sql.stripLeading().toLowerCase();
+        if (statement.contains("next value for") || statement.contains("nextval(")) {
+            // id block fetches happen once per 50 inserts per JVM, so whether one lands in
+            // a test depends on test order; they are not part of an endpoint's cost
+            return sql;
+        }
+        STATEMENTS.add(statement);
+        if (statement.startsWith("select") || statement.startsWith("with")) {
+            SELECTS.incrementAndGet();
+        } else if (statement.startsWith("insert") || statement.startsWith("merge")) {
+            INSERTS.incrementAndGet();
+        } else if (statement.startsWith("update")) {
+            UPDATES.incrementAndGet();
+        } else if (statement.startsWith("delete")) {
+            DELETES.incrementAndGet();
+        }
+        return sql;
+    }
+
+    public static void reset() {
+        SELECTS.set(0);
+        INSERTS.set(0);
+        UPDATES.set(0);
+        DELETES.set(0);
+        STATEMENTS.clear();
+    }
+
+    /** Lower-cased SQL of the statements counted since the last reset. */
+    public static List<String> statements() {
+        synchronized (STATEMENTS) {
+            return List.copyOf(STATEMENTS);
+        }
+    }
+
+    public static void assertStatements(String endpoint, int selects, int inserts, int updates, int deletes) {
+        int[] actual = {SELECTS.get(), INSERTS.get(), UPDATES.get(), DELETES.get()};
+        synchronized (REPORT) {
+            REPORT.put(endpoint, actual);
+        }
+        assertEquals(selects, actual[0], endpoint + ": SELECT count");
+        assertEquals(inserts, actual[1], endpoint + ": INSERT count");
+        assertEquals(updates, actual[2], endpoint + ": UPDATE count");
+        assertEquals(deletes, actual[3], endpoint + ": DELETE count");
+    }
+
+    public static void writeReport() throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add(String.format("%-60s %6s %6s %6s %6s", "endpoint", "select", "insert", "update", "delete"));
+        synchronized (REPORT) {
+            REPORT.forEach((endpoint, counts) -> lines.add(String.format("%-60s %6d %6d %6d %6d",
+                    endpoint, counts[0], counts[1], counts[2], counts[3])));
+        }
+        Files.createDirectories(REPORT_FILE.getParent());
+        Files.write(REPORT_FILE, lines);
+    }
+}
@@ -0,0 +1,164 @@
+package com.project.bankrest;
+
+import com.project.bankrest.Configuration.ReplicaRoutingDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Two (or three) separate in-memory H2 databases stand in for the primary and its
+ * replicas; each holds a row naming itself, so a query shows where it was routed.
+ */
+class ReplicaRoutingDataSourceTest {
+
+    private final AtomicReference<String> currentUser = new AtomicReference<>();
+
+    private DataSource primary;
+    private DataSource replica;
+
+    @BeforeEach
+    void setUp() {
+        currentUser.set(null);
+        primary = database("primary");
+        replica = database("replica");
+    }
+
+    @Test
+    void readOnlyTransaction_ShouldUseReplica() {
+        Routing routing = routing(List.of(replica), Duration.ofSeconds(5));
+
+        assertEquals("replica", routing.read());
+    }
+
+    @Test
+    void writeTransactionAndNonTransactionalWork_ShouldUsePrimary() {
+        Routing routing = routing(List.of(replica), Duration.ofSeconds(5));
+
+        String inTransaction = routing.writes.execute(status -> routing.jdbc.queryForObject("SELECT name FROM node", String.class));
+        String outside = routing.jdbc.queryForObject("SELECT name FROM node", String.class);
+
+        assertEquals("primary", inTransaction);
+        assertEquals("primary", outside);
+    }
+
+    @Test
+    void readAfterOwnWrite_ShouldStickToPrimaryForThatUserOnly() {
+        Routing routing = routing(List.of(replica), Duration.ofSeconds(30));
+        currentUser.set("alice");
+        routing.writes.executeWithoutResult(status -> routing.jdbc.update("UPDATE node SET hits = hits + 1"));
+
+        assertEquals("primary", routing.read());
+
+        currentUser.set("bob");
+        assertEquals("replica", routing.read());
+
+        currentUser.set(null);
+        assertEquals("replica", routing.read());
+    }
+
+    @Test
+    void rolledBackWrite_ShouldNotMakeUserSticky() {
+        Routing routing = routing(List.of(replica), Duration.ofSeconds(30));
+        currentUser.set("alice");
+        routing.writes.executeWithoutResult(status -> {
+            routing.jdbc.update("UPDATE node SET hits = hits + 1");
+            status.setRollbackOnly();
+        });
+
+        assertEquals("replica", routing.read());
+    }
+
+    @Test
+    void zeroStickyWindow_ShouldReadFromReplicaRightAfterWrite() {
+        Routing routing = routing(List.of(replica), Duration.ZERO);
+        currentUser.set("alice");
+        routing.writes.executeWithoutResult(status -> routing.jdbc.update("UPDATE node SET hits = hits + 1"));
+
+        assertEquals("replica", routing.read());
+    }
+
+    @Test
+    void replicas_ShouldBeUsedRoundRobin() {
+        DataSource second = database("replica2");
+        Routing routing = routing(List.of(replica, second), Duration.ofSeconds(5));
+
+        Set<String> seen = new HashSet<>();
+        for (int i = 0; i < 4; i++) {
+            seen.add(routing.read());
+        }
+
+        assertEquals(Set.of("replica", "replica2"), seen);
+    }
+
+    @Test
+    void unhealthyReplica_ShouldBeSkippedUntilItRecovers() {
+        DataSource down = new DriverManagerDataSource("jdbc:h2:mem:replica_down;IFEXISTS=TRUE", "sa", "");
+        Routing routing = routing(List.of(down, replica), Duration.ofSeconds(5));
+
+        routing.dataSource.checkReplicas();
+
+        assertEquals(1, routing.dataSource.getHealthyReplicaCount());
+        for (int i = 0; i < 3; i++) {
+            assertEquals("replica", routing.read());
+        }
+    }
+
+    @Test
+    void replicaRefusingConnection_ShouldFallBackToPrimary() {
+        DataSource down = new DriverManagerDataSource("jdbc:h2:mem:replica_down;IFEXISTS=TRUE", "sa", "");
+        Routing routing = routing(List.of(down), Duration.ofSeconds(5));
+
+        assertEquals("primary", routing.read());
+        assertEquals(0, routing.dataSource.getHealthyReplicaCount());
+        assertEquals("primary", routing.read());
+    }
+
+    private Routing routing(List<DataSource> replicas, Duration stickyWindow) {
+        ReplicaRoutingDataSource dataSource =
+                new ReplicaRoutingDataSource(primary, replicas, currentUser::get, stickyWindow, Duration.ofSeconds(10));
+        return new Routing(dataSource, new LazyConnectionDataSourceProxy(dataSource));
+    }
+
+    private static DataSource database(String name) {
+        DriverManagerDataSource dataSource =
+                new DriverManagerDataSource("jdbc:h2:mem:routing_" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("DROP TABLE IF EXISTS node");
+        jdbc.execute("CREATE TABLE node (name VARCHAR(32), hits INT)");
+        jdbc.update("INSERT INTO node VALUES (?, 0)", name);
+        return dataSource;
+    }
+
+    private static class Routing {
+        final ReplicaRoutingDataSource dataSource;
+        final JdbcTemplate jdbc;
+        final TransactionTemplate writes;
+        final TransactionTemplate reads;
+
+        Routing(ReplicaRoutingDataSource dataSource, DataSource proxy) {
+            this.dataSource = dataSource;
+            this.jdbc = new JdbcTemplate(proxy);
+            DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(proxy);
+            this.writes = new TransactionTemplate(transactionManager);
+            this.reads = new TransactionTemplate(transactionManager);
+            this.reads.setReadOnly(true);
+        }
+
+        String read() {
+            return reads.execute(status -> jdbc.queryForObject("SELECT name FROM node", String.class));
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.project.bankrest;
+
+import com.project.bankrest.Repository.SequenceIdAllocator;
+import com.project.bankrest.Security.EncryptionUtil;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DataJpaTest
+@Import({SequenceIdAllocator.class, EncryptionUtil.class})
+class SequenceIdAllocatorTest {
+
+    @Autowired
+    private SequenceIdAllocator idAllocator;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private long sequenceCalls() {
+        // each call advances the sequence by a whole block
+        return jdbcTemplate.queryForObject("SELECT NEXT VALUE FOR users_seq", Long.class);
+    }
+
+    @Test
+    void allocate_ShouldTakeOneSequenceValuePerBlockAndReuseTheRest() {
+        long before = sequenceCalls();
+
+        List<Long> ids = idAllocator.allocate("users_seq", 120);
+        List<Long> more = idAllocator.allocate("users_seq", 10);
+
+        assertEquals(120, ids.stream().distinct().count());
+        for (int i = 1; i < ids.size(); i++) {
+            if (i % SequenceIdAllocator.BLOCK_SIZE != 0) {
+                assertEquals(ids.get(i - 1) + 1, ids.get(i));
+            }
+        }
+        assertEquals(ids.get(119) + 1, more.get(0));
+        assertEquals(ids.get(119) + 10, more.get(9));
+        // three blocks for the allocations, one for this check itself
+        assertEquals(before + 4L * SequenceIdAllocator.BLOCK_SIZE, sequenceCalls());
+    }
+}
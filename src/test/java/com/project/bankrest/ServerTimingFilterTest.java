@@ -0,0 +1,60 @@
+package com.project.bankrest;
+
+import com.project.bankrest.Configuration.ServerTiming;
+import com.project.bankrest.Configuration.ServerTimingFilter;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ServerTimingFilterTest {
+
+    @Test
+    void start_WithoutRecording_ShouldCostNothing() {
+        assertEquals(0L, ServerTiming.start());
+        ServerTiming.stop("db", 0L);
+    }
+
+    @Test
+    void filter_ShouldAddBreakdownHeaderAndKeepBody() throws Exception {
+        ServerTimingFilter filter = new ServerTimingFilter(Duration.ofSeconds(10));
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/cards/my");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, (req, res) -> {
+            long start = ServerTiming.start();
+            assertNotEquals(0L, start);
+            ServerTiming.stop("db", start);
+            ServerTiming.stop("db", ServerTiming.start());
+            ServerTiming.stop("crypto", ServerTiming.start());
+            res.getWriter().write("{\"ok\":true}");
+        });
+
+        String header = response.getHeader(ServerTimingFilter.HEADER);
+        assertNotNull(header);
+        assertTrue(header.matches("db;dur=\\d+\\.\\d{2};desc=\"2 calls\", crypto;dur=\\d+\\.\\d{2}, total;dur=\\d+\\.\\d{2}"), header);
+        assertEquals("{\"ok\":true}", response.getContentAsString());
+        assertEquals(0L, ServerTiming.start());
+    }
+
+    @Test
+    void filter_StreamWithoutEventStreamAccept_ShouldNotBufferBody() throws Exception {
+        ServerTimingFilter filter = new ServerTimingFilter(Duration.ofSeconds(10));
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/cards/stream");
+        request.addHeader("Accept", "*/*");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, (req, res) -> {
+            assertSame(response, res);
+            assertEquals(0L, ServerTiming.start());
+            res.getWriter().write(":connected\n\n");
+            res.flushBuffer();
+        });
+
+        assertNull(response.getHeader(ServerTimingFilter.HEADER));
+        assertEquals(":connected\n\n", response.getContentAsString());
+    }
+}
@@ -0,0 +1,26 @@
+package com.project.bankrest;
+
+import com.project.bankrest.Security.TimedPasswordEncoder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimedPasswordEncoderTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final TimedPasswordEncoder encoder = new TimedPasswordEncoder(new BCryptPasswordEncoder(4), registry);
+
+    @Test
+    void encodeAndMatches_ShouldDelegateAndRecordTimings() {
+        String hash = encoder.encode("password123");
+
+        assertTrue(encoder.matches("password123", hash));
+        assertFalse(encoder.matches("wrong-password", hash));
+
+        assertEquals(1, registry.get("bankrest.auth.password").tag("operation", "encode").timer().count());
+        assertEquals(1, registry.get("bankrest.auth.password").tag("outcome", "match").timer().count());
+        assertEquals(1, registry.get("bankrest.auth.password").tag("outcome", "mismatch").timer().count());
+    }
+}
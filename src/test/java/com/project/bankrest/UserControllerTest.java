@@ -1,8 +1,14 @@
 package com.project.bankrest;
 
 import com.project.bankrest.Controller.UserController;
+import com.project.bankrest.DTO.UserDTO;
+import com.project.bankrest.DTO.UserImportReport;
+import com.project.bankrest.DTO.UserSearchPage;
+import com.project.bankrest.Entity.CardStatus;
 import com.project.bankrest.Entity.User;
+import com.project.bankrest.Services.UserImporter;
 import com.project.bankrest.Services.UserService;
+import com.project.bankrest.Services.UsernameTakenException;
 
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -14,11 +20,16 @@ import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
@@ -28,6 +39,8 @@ class UserControllerTest {
 
     @Mock
     private UserService userService;
+    @Mock
+    private UserImporter userImporter;
 
     @InjectMocks
     private UserController userController;
@@ -57,6 +70,53 @@ class UserControllerTest {
         verify(userService, times(1)).getUsers(search, page, size);
     }
 
+    @Test
+    void testSearchUsers() {
+        UserSearchPage mockPage = new UserSearchPage(List.of(), null);
+        when(userService.searchUsers("alex", null, 20)).thenReturn(mockPage);
+
+        ResponseEntity<?> response = userController.searchUsers("alex", null, 20);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(mockPage, response.getBody());
+    }
+
+    @Test
+    void testSearchUsers_InvalidCursor_ShouldReturnBadRequest() {
+        when(userService.searchUsers("alex", "bad", 20)).thenThrow(new IllegalArgumentException("Invalid cursor."));
+
+        ResponseEntity<?> response = userController.searchUsers("alex", "bad", 20);
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    }
+
+    @Test
+    void testImportUsers_ShouldPickFormatFromContentType() {
+        InputStream body = new ByteArrayInputStream(new byte[0]);
+        UserImportReport report = new UserImportReport();
+        when(userImporter.importUsers(body, UserImporter.Format.CSV)).thenReturn(report);
+        when(userImporter.importUsers(body, UserImporter.Format.NDJSON)).thenReturn(report);
+
+        assertEquals(report, userController.importUsers("text/csv; charset=UTF-8", body).getBody());
+        assertEquals(report, userController.importUsers("application/x-ndjson", body).getBody());
+
+        verify(userImporter).importUsers(body, UserImporter.Format.CSV);
+        verify(userImporter).importUsers(body, UserImporter.Format.NDJSON);
+    }
+
+    @Test
+    void testGetUsersWithCardStats() {
+        UserDTO dto = UserDTO.builder().id(1L).username("user").CardCount(2)
+                .cardsByStatus(Map.of(CardStatus.ACTIVE, 2L)).build();
+        Page<UserDTO> mockPage = new PageImpl<>(List.of(dto), PageRequest.of(0, 20), 1);
+        when(userService.getUsersWithCardStats(0, 20)).thenReturn(mockPage);
+
+        ResponseEntity<Page<UserDTO>> response = userController.getUsersWithCardStats(0, 20);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(mockPage, response.getBody());
+    }
+
     @Test
     void testGetAllUsersForAdmin() {
         User user1 = createMockUser(1L, "UserA");
@@ -119,6 +179,26 @@ class UserControllerTest {
         verify(userService, times(1)).addUser(requestUser);
     }
 
+    @Test
+    void testAddUserTaken_ShouldReturnConflict() {
+        User requestUser = createMockUser(null, "Taken");
+        when(userService.addUser(any(User.class))).thenThrow(new UsernameTakenException(null));
+
+        ResponseStatusException e = assertThrows(ResponseStatusException.class, () -> userController.addUser(requestUser));
+
+        assertEquals(HttpStatus.CONFLICT, e.getStatusCode());
+    }
+
+    @Test
+    void testAddUserWithoutUsername_ShouldReturnBadRequest() {
+        User requestUser = createMockUser(null, "Nameless");
+        when(userService.addUser(any(User.class))).thenThrow(new IllegalArgumentException("Username is required."));
+
+        ResponseStatusException e = assertThrows(ResponseStatusException.class, () -> userController.addUser(requestUser));
+
+        assertEquals(HttpStatus.BAD_REQUEST, e.getStatusCode());
+    }
+
     @Test
     void testGetUserById() {
         Long userId = 5L;
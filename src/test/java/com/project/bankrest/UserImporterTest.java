@@ -0,0 +1,84 @@
+package com.project.bankrest;
+
+import com.project.bankrest.DTO.UserImportReport;
+import com.project.bankrest.Entity.User;
+import com.project.bankrest.Repository.SequenceIdAllocator;
+import com.project.bankrest.Repository.UserRepository;
+import com.project.bankrest.Security.EncryptionUtil;
+import com.project.bankrest.Services.UserImporter;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = {"bankrest.users.import.chunk-size=2", "bankrest.users.import.hash-threads=2"})
+@Import({UserImporter.class, SequenceIdAllocator.class, EncryptionUtil.class, BCryptPasswordEncoder.class, JacksonAutoConfiguration.class})
+class UserImporterTest {
+
+    @Autowired
+    private UserImporter importer;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private BCryptPasswordEncoder passwordEncoder;
+
+    private static InputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static List<Long> errorLines(UserImportReport report) {
+        return report.getErrors().stream().map(UserImportReport.RowError::getLine).toList();
+    }
+
+    @Test
+    void importCsv_ShouldInsertValidRowsAndReportTheRest() {
+        String csv = """
+                username,password,name
+                anna,password123,"Anna, Jr."
+                boris,short,Boris
+                anna,password456,Anna Again
+                user,password123,Existing
+
+                "vera",password123,Vera
+                broken
+                """;
+
+        UserImportReport report = importer.importUsers(stream(csv), UserImporter.Format.CSV);
+
+        assertEquals(6, report.getTotal());
+        assertEquals(2, report.getImported());
+        assertEquals(4, report.getFailed());
+        assertEquals(List.of(3L, 4L, 5L, 8L), errorLines(report).stream().sorted().toList());
+
+        User anna = userRepository.findByUsername("anna").orElseThrow();
+        assertEquals("Anna, Jr.", anna.getName());
+        assertTrue(passwordEncoder.matches("password123", anna.getPassword()));
+        assertTrue(userRepository.findByUsername("vera").isPresent());
+    }
+
+    @Test
+    void importNdjson_ShouldInsertRowsAcrossChunks() {
+        String ndjson = """
+                {"username":"n1","password":"password123","name":"One"}
+                {"username":"n2","password":"password123"}
+                not json
+                {"username":"n3","password":"password123","name":"Three"}
+                """;
+
+        UserImportReport report = importer.importUsers(stream(ndjson), UserImporter.Format.NDJSON);
+
+        assertEquals(4, report.getTotal());
+        assertEquals(3, report.getImported());
+        assertEquals(List.of(3L), errorLines(report));
+        assertTrue(userRepository.findByUsername("n3").isPresent());
+    }
+}
@@ -0,0 +1,82 @@
+package com.project.bankrest;
+
+import com.project.bankrest.Entity.Card;
+import com.project.bankrest.Entity.CardStatus;
+import com.project.bankrest.Entity.User;
+import com.project.bankrest.Repository.CardRepository;
+import com.project.bankrest.Repository.UserRepository;
+import com.project.bankrest.Security.EncryptionUtil;
+import com.project.bankrest.Services.UserPurgeJob;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DataJpaTest
+@Import({UserPurgeJob.class, EncryptionUtil.class})
+class UserPurgeJobTest {
+
+    @Autowired
+    private UserPurgeJob purgeJob;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private CardRepository cardRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private EntityManager entityManager;
+
+    private User owner;
+
+    @BeforeEach
+    void setUp() {
+        owner = userRepository.findByUsername("user").orElseThrow();
+        Card card = new Card();
+        card.setNumber("4000000000000031");
+        card.setCvv("123");
+        card.setExpirationDate("2030-01");
+        card.setStatus(CardStatus.ACTIVE);
+        card.setBalance(BigDecimal.ONE);
+        card.setUser(owner);
+        cardRepository.save(card);
+        entityManager.flush();
+    }
+
+    private Integer countRows(String table, String column) {
+        return jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM " + table + " WHERE " + column + " = ?", Integer.class, owner.getId());
+    }
+
+    @Test
+    void purge_ShouldRemoveUsersDeletedBeforeCutoffWithTheirCards() {
+        Instant now = Instant.now();
+        userRepository.softDeleteById(owner.getId(), now.minus(Duration.ofDays(31)));
+
+        assertEquals(1, purgeJob.purge(now.minus(Duration.ofDays(30))));
+
+        assertEquals(0, countRows("users", "id"));
+        assertEquals(0, countRows("cards", "user_id"));
+    }
+
+    @Test
+    void purge_ShouldKeepRecentlyDeletedAndLiveUsers() {
+        Instant now = Instant.now();
+        userRepository.softDeleteById(owner.getId(), now.minus(Duration.ofDays(1)));
+
+        assertEquals(0, purgeJob.purge(now.minus(Duration.ofDays(30))));
+
+        assertEquals(1, countRows("users", "id"));
+        assertEquals(1, countRows("cards", "user_id"));
+        assertEquals(2, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users", Integer.class));
+    }
+}
@@ -0,0 +1,90 @@
+package com.project.bankrest;
+
+import com.project.bankrest.DTO.UserSearchPage;
+import com.project.bankrest.DTO.UserSearchResult;
+import com.project.bankrest.Entity.Role;
+import com.project.bankrest.Entity.User;
+import com.project.bankrest.Repository.UserRepository;
+import com.project.bankrest.Security.EncryptionUtil;
+import com.project.bankrest.Services.UserService;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Import({UserService.class, EncryptionUtil.class, BCryptPasswordEncoder.class})
+class UserSearchTest {
+
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private EntityManager entityManager;
+
+    private User exact;
+    private User prefix;
+    private User inName;
+    private User deleted;
+
+    @BeforeEach
+    void setUp() {
+        exact = save("alex", "Someone");
+        prefix = save("alexandra", "Alexandra P");
+        inName = save("k.smith", "Big Alex");
+        save("bob", "Bob");
+        save("50%off", "Promo");
+        deleted = save("alexei", "Alexei");
+        entityManager.flush();
+        userRepository.softDeleteById(deleted.getId(), Instant.now());
+    }
+
+    private User save(String username, String name) {
+        return userRepository.save(User.builder()
+                .username(username).name(name).password("secret").role(Role.USER).build());
+    }
+
+    private static List<Long> ids(UserSearchPage page) {
+        return page.getItems().stream().map(UserSearchResult::getId).toList();
+    }
+
+    @Test
+    void search_ShouldRankExactThenPrefixThenSubstringAndSkipDeleted() {
+        UserSearchPage page = userService.searchUsers("  ALEX ", null, 20);
+
+        assertEquals(List.of(exact.getId(), prefix.getId(), inName.getId()), ids(page));
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void search_ShouldWalkPagesWithCursor() {
+        UserSearchPage first = userService.searchUsers("alex", null, 2);
+        assertEquals(List.of(exact.getId(), prefix.getId()), ids(first));
+        assertNotNull(first.getNextCursor());
+
+        UserSearchPage second = userService.searchUsers("alex", first.getNextCursor(), 2);
+        assertEquals(List.of(inName.getId()), ids(second));
+        assertNull(second.getNextCursor());
+    }
+
+    @Test
+    void search_ShouldTreatWildcardsLiterally() {
+        assertEquals(1, userService.searchUsers("%off", null, 20).getItems().size());
+        assertTrue(userService.searchUsers("a_e", null, 20).getItems().isEmpty());
+    }
+
+    @Test
+    void search_InvalidInput_ShouldThrowIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class, () -> userService.searchUsers(" ", null, 20));
+        assertThrows(IllegalArgumentException.class, () -> userService.searchUsers("alex", "garbage", 20));
+    }
+}
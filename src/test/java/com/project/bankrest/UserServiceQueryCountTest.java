@@ -0,0 +1,173 @@
+package com.project.bankrest;
+
+import com.project.bankrest.DTO.SignupRequest;
+import com.project.bankrest.DTO.UserDTO;
+import com.project.bankrest.Entity.Card;
+import com.project.bankrest.Entity.CardStatus;
+import com.project.bankrest.Entity.Role;
+import com.project.bankrest.Entity.User;
+import com.project.bankrest.Repository.UserRepository;
+import com.project.bankrest.Security.EncryptionUtil;
+import com.project.bankrest.Services.UserService;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest
+@ActiveProfiles("querycount")
+@Import({UserService.class, EncryptionUtil.class, BCryptPasswordEncoder.class})
+class UserServiceQueryCountTest {
+
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private EntityManager entityManager;
+
+    private User existingUser;
+
+    @BeforeEach
+    void setUp() {
+        existingUser = userRepository.findByUsername("user").orElseThrow();
+        entityManager.clear();
+        QueryCounter.reset();
+    }
+
+    @AfterAll
+    static void writeReport() throws IOException {
+        QueryCounter.writeReport();
+    }
+
+    private void assertStatements(String endpoint, int selects, int inserts, int updates, int deletes) {
+        entityManager.flush();
+        QueryCounter.assertStatements(endpoint, selects, inserts, updates, deletes);
+    }
+
+    @Test
+    void register_ValidRequest_ShouldOnlyInsert() {
+        userService.register(new SignupRequest("newuser", "securepassword123", "Jane Smith"));
+
+        assertStatements("POST /api/auth/signup", 0, 1, 0, 0);
+    }
+
+    @Test
+    void register_UsernameExists_ShouldFailOnTheInsert() {
+        SignupRequest request = new SignupRequest(existingUser.getUsername(), "securepassword123", "Copy");
+
+        assertThrows(IllegalArgumentException.class, () -> userService.register(request));
+
+        entityManager.clear();
+        assertStatements("POST /api/auth/signup (duplicate)", 0, 1, 0, 0);
+    }
+
+    @Test
+    void addUser_ShouldOnlyInsert() {
+        userService.addUser(User.builder().username("added").password("secret").build());
+
+        assertStatements("POST /api/users", 0, 1, 0, 0);
+    }
+
+    @Test
+    void updateUser_ShouldSelectAndUpdate() {
+        User updateData = User.builder().username("renamed").name("Renamed").role(Role.USER).build();
+
+        userService.updateUser(existingUser.getId(), updateData);
+
+        assertStatements("PUT /api/users/{id}", 1, 0, 1, 0);
+    }
+
+    @Test
+    void getUserById_ShouldRunSingleSelect() {
+        userService.getUserById(existingUser.getId());
+
+        assertStatements("GET /api/users/{id}", 1, 0, 0, 0);
+    }
+
+    @Test
+    void getAllUsers_ShouldRunSingleSelect() {
+        assertEquals(2, userService.getAllUsers().size());
+
+        assertStatements("GET /api/users/admin/all", 1, 0, 0, 0);
+    }
+
+    @Test
+    void getUsers_ShouldRunContentAndCountQueries() {
+        assertEquals(2, userService.getUsers(null, 0, 1).getTotalElements());
+
+        assertStatements("GET /api/users", 2, 0, 0, 0);
+    }
+
+    @Test
+    void getUsers_WithSearch_ShouldSkipCountOnPartialFirstPage() {
+        userService.getUsers("adm", 0, 10);
+
+        assertStatements("GET /api/users?search", 1, 0, 0, 0);
+    }
+
+    @Test
+    void deleteUser_WithoutCards_ShouldFlagOnlyThatRow() {
+        userService.deleteUser(existingUser.getId());
+
+        assertStatements("DELETE /api/users/{id}", 1, 0, 1, 0);
+    }
+
+    @Test
+    void deleteUser_ShouldHideUserFromQueries() {
+        userService.deleteUser(existingUser.getId());
+
+        assertTrue(userRepository.findByUsername("user").isEmpty());
+        assertTrue(userRepository.findById(existingUser.getId()).isEmpty());
+        assertEquals(1, userService.getAllUsers().size());
+    }
+
+    @Test
+    void getUsersWithCardStats_ShouldCountCardsInOneGroupedQuery() {
+        User owner = userRepository.findById(existingUser.getId()).orElseThrow();
+        saveCard(owner, "4000000000000041", CardStatus.ACTIVE);
+        saveCard(owner, "4000000000000042", CardStatus.ACTIVE);
+        saveCard(owner, "4000000000000043", CardStatus.BLOCKED);
+        entityManager.flush();
+        entityManager.clear();
+        QueryCounter.reset();
+
+        Page<UserDTO> page = userService.getUsersWithCardStats(0, 10);
+
+        assertStatements("GET /api/users/admin/overview", 2, 0, 0, 0);
+        UserDTO user = page.getContent().stream()
+                .filter(dto -> dto.getId().equals(existingUser.getId()))
+                .findFirst().orElseThrow();
+        assertEquals(3, user.getCardCount());
+        assertEquals(Map.of(CardStatus.ACTIVE, 2L, CardStatus.BLOCKED, 1L), user.getCardsByStatus());
+        UserDTO other = page.getContent().stream()
+                .filter(dto -> !dto.getId().equals(existingUser.getId()))
+                .findFirst().orElseThrow();
+        assertEquals(0, other.getCardCount());
+    }
+
+    private void saveCard(User owner, String number, CardStatus status) {
+        Card card = new Card();
+        card.setNumber(number);
+        card.setCvv("123");
+        card.setExpirationDate("2030-01");
+        card.setStatus(status);
+        card.setBalance(BigDecimal.ONE);
+        card.setUser(owner);
+        entityManager.persist(card);
+    }
+}
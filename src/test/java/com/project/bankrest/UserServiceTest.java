@@ -1,11 +1,16 @@
 package com.project.bankrest;
 
 import com.project.bankrest.DTO.SignupRequest;
+import com.project.bankrest.Entity.CardStatus;
 import com.project.bankrest.Entity.Role;
 import com.project.bankrest.Entity.User;
+import com.project.bankrest.Event.CardStatusBulkEvent;
+import com.project.bankrest.Event.UserEvent;
+import com.project.bankrest.Repository.CardRepository;
 import com.project.bankrest.Repository.UserRepository;
 
 import com.project.bankrest.Services.UserService;
+import com.project.bankrest.Services.UsernameTakenException;
 import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -14,10 +19,12 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
-import java.util.Arrays;
+import java.sql.SQLException;
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 
@@ -32,9 +39,11 @@ public class UserServiceTest {
     @Mock
     private PasswordEncoder passwordEncoder;
     @Mock
-    private JdbcTemplate jdbcTemplate;
-    @Mock
     private EntityManager entityManager;
+    @Mock
+    private CardRepository cardRepository;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
 
     @InjectMocks
     @Spy
@@ -58,63 +67,80 @@ public class UserServiceTest {
         validSignupRequest = new SignupRequest("newuser", "securepassword123", "Jane Smith");
     }
 
+    private static DataIntegrityViolationException usernameConflict() {
+        return new DataIntegrityViolationException("could not execute statement", new SQLException(
+                "ERROR: duplicate key value violates unique constraint \"uq_users_username_live\"", "23505"));
+    }
+
     @Test
     void register_ValidRequest_ShouldSaveNewUser() {
-        when(userRepository.findByUsername(validSignupRequest.getUsername())).thenReturn(Optional.empty());
         when(passwordEncoder.encode(validSignupRequest.getPassword())).thenReturn(ENCODED_PASSWORD);
+        when(userRepository.saveAndFlush(any(User.class))).thenAnswer(invocation -> invocation.getArgument(0));
         userService.register(validSignupRequest);
 
-        verify(userRepository, times(1)).save(argThat(user ->
+        verify(userRepository, times(1)).saveAndFlush(argThat(user ->
                 user.getUsername().equals(validSignupRequest.getUsername()) &&
                         user.getPassword().equals(ENCODED_PASSWORD) &&
                         user.getRole().equals(Role.USER)
         ));
+        verify(userRepository, never()).findByUsername(anyString());
+        verify(eventPublisher).publishEvent(any(UserEvent.class));
     }
 
     @Test
-    void register_UsernameExists_ShouldThrowRuntimeException() {
-        when(userRepository.findByUsername(validSignupRequest.getUsername())).thenReturn(Optional.of(existingUser));
-        assertThrows(RuntimeException.class, () -> {
-            userService.register(validSignupRequest);
-        }, "Username already exists.");
+    void register_UsernameExists_ShouldThrowIllegalArgumentException() {
+        when(passwordEncoder.encode(validSignupRequest.getPassword())).thenReturn(ENCODED_PASSWORD);
+        when(userRepository.saveAndFlush(any(User.class)))
+                .thenThrow(usernameConflict());
 
-        verify(userRepository, never()).save(any(User.class));
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> {
+            userService.register(validSignupRequest);
+        });
+        assertEquals("Username already exists.", e.getMessage());
     }
 
     @Test
     void register_ShortPassword_ShouldThrowIllegalArgumentException() {
         validSignupRequest.setPassword("short");
-        when(userRepository.findByUsername(validSignupRequest.getUsername())).thenReturn(Optional.empty());
 
         assertThrows(IllegalArgumentException.class, () -> {
             userService.register(validSignupRequest);
         }, "Password must contain at least 8 letters.");
 
-        verify(userRepository, never()).save(any(User.class));
+        verify(userRepository, never()).saveAndFlush(any(User.class));
     }
 
     @Test
-    void addUser_UsernameExists_ShouldThrowRuntimeException() {
-        when(userRepository.existsByUsername(existingUser.getUsername())).thenReturn(true);
+    void addUser_UsernameExists_ShouldThrowIllegalArgumentException() {
+        when(userRepository.saveAndFlush(any(User.class)))
+                .thenThrow(usernameConflict());
 
-        assertThrows(RuntimeException.class, () -> {
+        IllegalArgumentException e = assertThrows(UsernameTakenException.class, () -> {
             userService.addUser(existingUser);
-        }, "Username already exists.");
+        });
+        assertEquals("Username already exists.", e.getMessage());
+    }
+
+    @Test
+    void addUser_OtherIntegrityViolation_ShouldRethrow() {
+        DataIntegrityViolationException notNull = new DataIntegrityViolationException("could not execute statement",
+                new SQLException("ERROR: null value in column \"password\" violates not-null constraint", "23502"));
+        when(userRepository.saveAndFlush(any(User.class))).thenThrow(notNull);
 
-        verify(userRepository, never()).save(any(User.class));
+        assertSame(notNull, assertThrows(DataIntegrityViolationException.class, () -> userService.addUser(existingUser)));
+        verify(eventPublisher, never()).publishEvent(any());
     }
 
     @Test
     void addUser_RoleIsNull_ShouldDefaultToUserRole() {
         User newUser = User.builder().username("new").role(null).build();
-        when(userRepository.existsByUsername(newUser.getUsername())).thenReturn(false);
-        when(userRepository.save(any(User.class))).thenReturn(newUser);
+        when(userRepository.saveAndFlush(any(User.class))).thenReturn(newUser);
 
         User savedUser = userService.addUser(newUser);
 
         assertEquals(Role.USER, savedUser.getRole());
 
-        verify(userRepository, times(1)).save(argThat(user ->
+        verify(userRepository, times(1)).saveAndFlush(argThat(user ->
                 user.getRole().equals(Role.USER)
         ));
     }
@@ -168,42 +194,23 @@ public class UserServiceTest {
     }
 
     @Test
-    void reindexUserIds_ShouldReindexUsersAndResetSequence() {
-        User u1 = User.builder()
-                .id(10L)
-                .username("u1")
-                .build();
-        User u2 = User.builder()
-                .id(50L)
-                .username("u2")
-                .build();
-        User u3 = User.builder()
-                .id(100L)
-                .username("u3")
-                .build();
-        List<User> initialUsers = Arrays.asList(u1, u2, u3);
-
-        when(userRepository.findAllOrderByIdAsc()).thenReturn(initialUsers);
-        userService.reindexUserIds();
+    void deleteUser_ShouldSoftDeleteAndBlockCards() {
+        when(userRepository.softDeleteById(eq(1L), any(Instant.class))).thenReturn(1);
+        when(cardRepository.findIdsByUserId(1L)).thenReturn(List.of(3L, 4L));
 
-        verify(userRepository, times(1)).updateUserId(10L, -1L);
-        verify(userRepository, times(1)).updateUserId(50L, -2L);
-        verify(userRepository, times(1)).updateUserId(100L, -3L);
+        userService.deleteUser(1L);
 
-        List<User> tempUsers = Arrays.asList(
-                User.builder().id(-1L).username("u1").build(),
-                User.builder().id(-2L).username("u2").build(),
-                User.builder().id(-3L).username("u3").build()
-        );
-        when(userRepository.findAllOrderByIdAsc()).thenReturn(initialUsers, tempUsers);
-        userService.reindexUserIds();
+        verify(cardRepository).updateStatusByIdIn(List.of(3L, 4L), CardStatus.BLOCKED);
+        verify(eventPublisher).publishEvent(any(CardStatusBulkEvent.class));
+        verify(userRepository, never()).deleteById(anyLong());
+    }
 
-        verify(userRepository, times(1)).updateUserId(-1L, 1L);
-        verify(userRepository, times(1)).updateUserId(-2L, 2L);
-        verify(userRepository, times(1)).updateUserId(-3L, 3L);
+    @Test
+    void deleteUser_AlreadyDeleted_ShouldDoNothingElse() {
+        when(userRepository.softDeleteById(eq(1L), any(Instant.class))).thenReturn(0);
 
-        verify(jdbcTemplate, times(2)).execute(anyString());
+        userService.deleteUser(1L);
 
-        verify(entityManager, never()).clear();
+        verifyNoInteractions(cardRepository, eventPublisher);
     }
-}
\ No newline at end of file
+}
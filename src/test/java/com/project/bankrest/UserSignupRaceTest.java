@@ -0,0 +1,82 @@
+package com.project.bankrest;
+
+import com.project.bankrest.DTO.SignupRequest;
+import com.project.bankrest.Security.EncryptionUtil;
+import com.project.bankrest.Services.UserService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+
+/**
+ * Runs without the usual test transaction so that each signup commits on its own,
+ * as concurrent requests would.
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({UserService.class, EncryptionUtil.class, BCryptPasswordEncoder.class})
+class UserSignupRaceTest {
+
+    private static final int THREADS = 8;
+
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM users WHERE username = 'racer'");
+    }
+
+    @Test
+    void concurrentSignups_ForSameUsername_ShouldCreateExactlyOneUser() throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < THREADS; i++) {
+                SignupRequest request = new SignupRequest("racer", "securepassword123", "Racer " + i);
+                results.add(executor.submit(() -> {
+                    start.await();
+                    userService.register(request);
+                    return null;
+                }));
+            }
+            start.countDown();
+
+            int succeeded = 0;
+            for (Future<?> result : results) {
+                try {
+                    result.get();
+                    succeeded++;
+                } catch (ExecutionException e) {
+                    assertInstanceOf(IllegalArgumentException.class, e.getCause());
+                    assertEquals("Username already exists.", e.getCause().getMessage());
+                }
+            }
+            assertEquals(1, succeeded);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM users WHERE username = 'racer'", Integer.class));
+    }
+}
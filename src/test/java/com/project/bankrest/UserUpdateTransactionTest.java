@@ -0,0 +1,59 @@
+package com.project.bankrest;
+
+import com.project.bankrest.Entity.Role;
+import com.project.bankrest.Entity.User;
+import com.project.bankrest.Repository.UserRepository;
+import com.project.bankrest.Security.EncryptionUtil;
+import com.project.bankrest.Services.UserService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+
+/**
+ * Runs without the usual test transaction, so the transaction seen by the repository
+ * is the one UserService opens. Read-only transactions are what the replica routing
+ * sends to a replica.
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({UserService.class, EncryptionUtil.class, BCryptPasswordEncoder.class})
+class UserUpdateTransactionTest {
+
+    @Autowired
+    private UserService userService;
+    @MockitoSpyBean
+    private UserRepository userRepository;
+
+    @Test
+    void updateUser_ShouldReadTheUserInAReadWriteTransaction() {
+        User existing = userRepository.findByUsername("user").orElseThrow();
+        List<String> reads = new ArrayList<>();
+        doAnswer(invocation -> {
+            reads.add(TransactionSynchronizationManager.isActualTransactionActive()
+                    + "/" + TransactionSynchronizationManager.isCurrentTransactionReadOnly());
+            return Optional.of(existing);
+        }).when(userRepository).findById(anyLong());
+
+        User update = new User();
+        update.setUsername(existing.getUsername());
+        update.setName(existing.getName());
+        userService.updateUser(existing.getId(), update);
+
+        assertEquals(List.of("true/false"), reads);
+        assertEquals(Role.USER, userRepository.findByUsername("user").orElseThrow().getRole());
+    }
+}